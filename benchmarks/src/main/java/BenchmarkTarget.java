@@ -0,0 +1,195 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import benchmarks.Target;
+
+// Implementation of the operations measured by the benchmarks (see benchmarks.Target)
+public class BenchmarkTarget implements Target {
+	private RushHour puzzle;
+	private ArrayList<CarMove> moves;
+	private int nextMove = 0;
+	private int[] packedMoves;
+	private int numPackedMoves;
+	// configurations of the random puzzle, and buffers for expanding them
+	private PuzzleGeometry geometry;
+	private long[][] keys;
+	private int nextKey = 0;
+	private int[] positions;
+	private long[] rows;
+	private long[] cols;
+	private long[] childKey;
+	private Solver solver;
+	// blocks of configurations of the cluster of the puzzle, for the kernels
+	private MoveKernel kernel;
+	private long[] blockKeys;
+	private int blockSize;
+	private int nextBlock = 0;
+	private int[] before;
+	private int[] after;
+	
+
+	@Override
+	public void setPuzzle(String name) {
+		puzzle = Program.namedPuzzle(name);
+		if (puzzle == null)
+			throw new Error("unknown puzzle " + name);
+		moves = puzzle.getPossibleMoves();
+		nextMove = 0;
+		packedMoves = new int[puzzle.maxMoves()];
+		numPackedMoves = puzzle.getPossibleMoves(-1, packedMoves);
+	}
+	
+	@Override
+	public Object possibleMoves() {
+		return puzzle.getPossibleMoves();
+	}
+	
+	@Override
+	public int moveAndCancel() {
+		var carMove = moves.get(nextMove);
+		nextMove = (nextMove + 1) % moves.size();
+		puzzle.move(carMove);
+		puzzle.cancelMove(carMove);
+		return carMove.carId;
+	}
+	
+	@Override
+	public int packedPossibleMoves() {
+		return puzzle.getPossibleMoves(-1, packedMoves);
+	}
+	
+	@Override
+	public int packedMoveAndCancel() {
+		int move = packedMoves[nextMove];
+		nextMove = (nextMove + 1) % numPackedMoves;
+		puzzle.move(move);
+		puzzle.cancelMove(move);
+		return move;
+	}
+	
+	@Override
+	public int integerRepresentation() {
+		return puzzle.integerRepresentation();
+	}
+	
+	@Override
+	public long longRepresentation() {
+		return puzzle.longRepresentation();
+	}
+	
+	@Override
+	public long zobristHash() {
+		return puzzle.zobristHash();
+	}
+	
+	@Override
+	public Object solve(String solverName) {
+		return Solver.named(solverName).solve(puzzle);
+	}
+	
+	@Override
+	public void setRandomPuzzle(int size, int numCars, int walls, long seed) {
+		puzzle = SolverReport.randomPuzzle(size, size, numCars, walls, seed);
+		geometry = new PuzzleGeometry(puzzle);
+		positions = new int[geometry.numCars + 1];
+		rows = new long[geometry.height];
+		cols = new long[geometry.width];
+		packedMoves = new int[geometry.maxMoves];
+		childKey = new long[geometry.keyWords];
+		// a random walk from the initial configuration
+		var random = new Random(seed);
+		var walk = puzzle.copy();
+		keys = new long[1024][geometry.keyWords];
+		for (var key: keys) {
+			geometry.encode(walk, key);
+			int numMoves = walk.getPossibleMoves(-1, packedMoves);
+			if (numMoves > 0)
+				walk.move(packedMoves[random.nextInt(numMoves)]);
+		}
+		nextKey = 0;
+	}
+	
+	@Override
+	public int expandConfiguration() {
+		var key = keys[nextKey];
+		nextKey = (nextKey + 1) % keys.length;
+		geometry.decode(key, 0, positions);
+		geometry.fillBoard(positions, rows, cols);
+		int numMoves = geometry.possibleMoves(positions, rows, cols, -1, packedMoves);
+		long sum = 0;
+		for (int i = 0; i < numMoves; i++) {
+			geometry.play(key, packedMoves[i], childKey);
+			sum += childKey[0];
+		}
+		return numMoves + (int) sum;
+	}
+	
+	@Override
+	public int boundedSolve(String solverName, int maxStates) {
+		solver = Solver.named(solverName);
+		return solver.solve(puzzle, new SolveLimits(0, maxStates, 0)).stats.getVisited();
+	}
+	
+	@Override
+	public long lastSolveMemory() {
+		return solver.getStats().getMemory();
+	}
+	
+	@Override
+	public String setKernel(String puzzleName, String kernelName, int blockSize) {
+		setPuzzle(puzzleName);
+		geometry = new PuzzleGeometry(puzzle);
+		kernel = (kernelName.equals("vector")? MoveKernel.of(geometry) : MoveKernel.scalar(geometry));
+		this.blockSize = blockSize;
+		// the cluster in breadth first order
+		positions = new int[geometry.numCars + 1];
+		rows = new long[geometry.height];
+		cols = new long[geometry.width];
+		var moves = new int[geometry.maxMoves];
+		var cluster = new ArrayList<Long>();
+		var seen = new HashSet<Long>();
+		var queue = new ArrayDeque<Long>();
+		queue.add(puzzle.longRepresentation());
+		seen.add(puzzle.longRepresentation());
+		while (!queue.isEmpty()) {
+			long key = queue.poll();
+			cluster.add(key);
+			geometry.decode(key, positions);
+			geometry.fillBoard(positions, rows, cols);
+			int numMoves = geometry.possibleMoves(positions, rows, cols, -1, moves);
+			for (int i = 0; i < numMoves; i++) {
+				long child = geometry.play(key, moves[i]);
+				if (seen.add(child))
+					queue.add(child);
+			}
+		}
+		int blocks = Math.max(16, (cluster.size() + blockSize - 1) / blockSize);
+		blockKeys = new long[blocks * blockSize];
+		for (int i = 0; i < blockKeys.length; i++)
+			blockKeys[i] = cluster.get(i % cluster.size());
+		nextBlock = 0;
+		before = new int[(geometry.numCars + 1) * blockSize];
+		after = new int[(geometry.numCars + 1) * blockSize];
+		packedMoves = moves;
+		return kernel.name();
+	}
+	
+	@Override
+	public int slideRanges() {
+		kernel.slideRanges(blockKeys, nextBlock, blockSize, before, after);
+		nextBlock = (nextBlock + blockSize) % blockKeys.length;
+		return before[blockSize] + after[blockSize];
+	}
+	
+	@Override
+	public int blockMoves() {
+		kernel.slideRanges(blockKeys, nextBlock, blockSize, before, after);
+		nextBlock = (nextBlock + blockSize) % blockKeys.length;
+		int total = 0;
+		for (int i = 0; i < blockSize; i++)
+			total += kernel.moves(before, after, blockSize, i, -1, packedMoves);
+		return total;
+	}
+}
@@ -0,0 +1,20 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Entry point of benchmarks.jar: runs JMH with the given arguments, and with
+ * the GC profiler (allocation rate per operation) unless a profiler is given.
+ * Example: java -jar benchmarks/target/benchmarks.jar SolverBenchmark -p puzzle=hardest
+ */
+public class BenchmarkMain {
+	public static void main(String[] args) throws Exception {
+		var jmhArgs = new ArrayList<String>(Arrays.asList(args));
+		if (!jmhArgs.contains("-prof")) {
+			jmhArgs.add("-prof");
+			jmhArgs.add("gc");
+		}
+		org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+	}
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Move generation and searches on random boards of growing size (size x size cells,
+// size * size / 5 cars): the keys take several longs from 12x12 with 28 cars.
+// The searches are stopped after MAX_STATES configurations, the counter "states"
+// gives the configurations visited per second, and the bytes used per configuration
+// by the store are printed at the end of each trial
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoardSizeBenchmark {
+	private static final int MAX_STATES = 200_000;
+
+	@Param({"6", "8", "12", "16"})
+	public int size;
+
+	@Param({"0", "4"})
+	public int walls;
+
+	private Target target;
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Counters {
+		public long states;
+	}
+
+	@Setup
+	public void setup() {
+		target = Target.create();
+		target.setRandomPuzzle(size, size * size / 5, walls, 1);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int expandConfiguration() {
+		return target.expandConfiguration();
+	}
+
+	@Benchmark
+	public int parentBFS(Counters counters) {
+		int visited = target.boundedSolve("parent-bfs", MAX_STATES);
+		counters.states += visited;
+		return visited;
+	}
+
+	@Benchmark
+	public int astar(Counters counters) {
+		int visited = target.boundedSolve("astar", MAX_STATES);
+		counters.states += visited;
+		return visited;
+	}
+
+	@TearDown(Level.Trial)
+	public void printMemory() {
+		for (var solver: new String[] {"parent-bfs", "astar"}) {
+			int visited = target.boundedSolve(solver, MAX_STATES);
+			System.out.printf("%n%dx%d, %d walls, %s: %d configurations, %.1f bytes per configuration",
+					size, size, walls, solver, visited, (double) target.lastSolveMemory() / visited);
+		}
+		System.out.println();
+	}
+}
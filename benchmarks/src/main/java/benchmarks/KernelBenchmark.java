@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Expansion of blocks of configurations of the clusters of the puzzles of Program by the
+// scalar and vector MoveKernel: one operation is one configuration, so the scores are in
+// configurations per second. The forks are started with the module of the Vector API
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class KernelBenchmark {
+	private static final int BLOCK = 256;
+
+	@Param({"easy", "medium", "hard", "hardest"})
+	public String puzzle;
+
+	@Param({"scalar", "vector"})
+	public String kernel;
+
+	private Target target;
+
+	@Setup
+	public void setup() {
+		target = Target.create();
+		var created = target.setKernel(puzzle, kernel, BLOCK);
+		if (!created.equals(kernel))
+			throw new IllegalStateException("the " + kernel + " kernel cannot be used in this JVM");
+	}
+
+	// slide ranges of all the cars
+	@Benchmark
+	@OperationsPerInvocation(BLOCK)
+	public int slideRanges() {
+		return target.slideRanges();
+	}
+
+	// slide ranges, then packed moves of each configuration
+	@Benchmark
+	@OperationsPerInvocation(BLOCK)
+	public int possibleMoves() {
+		return target.blockMoves();
+	}
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Move generation, moves and state encoding on the puzzles of Program
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+	@Param({"easy", "medium", "hard", "hardest"})
+	public String puzzle;
+
+	private Target target;
+
+	@Setup
+	public void setup() {
+		target = Target.create();
+		target.setPuzzle(puzzle);
+	}
+
+	@Benchmark
+	public Object getPossibleMoves() {
+		return target.possibleMoves();
+	}
+
+	@Benchmark
+	public int moveAndCancelMove() {
+		return target.moveAndCancel();
+	}
+
+	@Benchmark
+	public int packedPossibleMoves() {
+		return target.packedPossibleMoves();
+	}
+
+	@Benchmark
+	public int packedMoveAndCancelMove() {
+		return target.packedMoveAndCancel();
+	}
+
+	@Benchmark
+	public int integerRepresentation() {
+		return target.integerRepresentation();
+	}
+
+	@Benchmark
+	public long longRepresentation() {
+		return target.longRepresentation();
+	}
+
+	@Benchmark
+	public long zobristHash() {
+		return target.zobristHash();
+	}
+}
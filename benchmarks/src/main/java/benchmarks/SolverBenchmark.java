@@ -0,0 +1,43 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Complete solves of the puzzles of Program
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+	@Param({"easy", "medium", "hard", "hardest"})
+	public String puzzle;
+
+	@Param({"bfs", "parent-bfs", "astar"})
+	public String solver;
+
+	private Target target;
+
+	@Setup
+	public void setup() {
+		target = Target.create();
+		target.setPuzzle(puzzle);
+	}
+
+	@Benchmark
+	public Object solve() {
+		return target.solve(solver);
+	}
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+/**
+ * Operations of the solver measured by the benchmarks:
+ * ----------------------------------------------------
+ * the classes of the solver are in the default package, which cannot be imported
+ * from a named package (and JMH requires the benchmarks to be in a named package),
+ * so the benchmarks only use them through this interface, implemented by the class
+ * BenchmarkTarget of the default package. It has a single implementation, so the
+ * calls are inlined by the JIT.
+ */
+public interface Target {
+	// selects one of the puzzles of Program: easy, medium, hard or hardest
+	void setPuzzle(String name);
+
+	// RushHour.getPossibleMoves() in the initial configuration
+	Object possibleMoves();
+
+	// RushHour.move() then RushHour.cancelMove() of the next possible move
+	int moveAndCancel();
+
+	// RushHour.getPossibleMoves(-1, moves) into a buffer, returns the number of moves
+	int packedPossibleMoves();
+
+	// RushHour.move(int) then RushHour.cancelMove(int) of the next packed possible move
+	int packedMoveAndCancel();
+
+	int integerRepresentation();
+
+	// maintained by the moves, so these two only read a field
+	long longRepresentation();
+
+	long zobristHash();
+
+	// complete solve of the puzzle with the solver of the given name (see Solver.named)
+	Object solve(String solverName);
+
+	// selects a random puzzle of size x size cells with numCars cars and "walls" walls
+	// (see SolverReport.randomPuzzle), and configurations of it reached by random moves
+	void setRandomPuzzle(int size, int numCars, int walls, long seed);
+
+	// decoding, move generation and keys of the children of the next configuration,
+	// with PuzzleGeometry and keys of PuzzleGeometry.keyWords longs, returns the number of moves
+	int expandConfiguration();
+
+	// search with the solver of the given name stopped after maxStates configurations,
+	// returns the number of configurations visited
+	int boundedSolve(String solverName, int maxStates);
+
+	// bytes used by the configurations of the last boundedSolve() (see SolverStats.getMemory())
+	long lastSolveMemory();
+
+	// selects a puzzle of Program, the configurations of its cluster (repeated to fill
+	// several blocks) and the kernel "scalar" or "vector" (see MoveKernel), returns the
+	// name of the kernel created: "scalar" if the Vector API cannot be used
+	String setKernel(String puzzleName, String kernel, int blockSize);
+
+	// MoveKernel.slideRanges() of the next block of configurations
+	int slideRanges();
+
+	// same, then MoveKernel.moves() of each configuration, returns the number of moves
+	int blockMoves();
+
+
+	static Target create() {
+		try {
+			return (Target) Class.forName("BenchmarkTarget").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("cannot create the benchmark target", e);
+		}
+	}
+}
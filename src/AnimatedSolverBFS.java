@@ -1,236 +1,276 @@
-import java.awt.BasicStroke;
-import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.util.HashSet;
+import java.awt.Rectangle;
+import java.util.Arrays;
 import java.util.LinkedList;
 
+import javax.swing.JButton;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 public class AnimatedSolverBFS extends JPanel {
-	// Colors and dimensions
+	// Dimensions and drawing
 	final int CELL_SIZE = 100;
-	final int MARGIN = CELL_SIZE / 8;
-	final Color BACKGROUND = new Color(200,200,170);
-	final Color RED = new Color(220,0,0);
-	final Color BLUE = new Color(0,120,170);
-	
-	// The puzzle
+	private final BoardPainter painter = new BoardPainter(CELL_SIZE);
+
+	// The puzzle, never modified by the animation
 	RushHour puzzle;
 	public final int PANEL_WIDTH;
 	public final int PANEL_HEIGHT;
-	
-	// The solver
-	// the method solve() contains a queue of moves, and for each move
-	// in that queue we do one of the following actions
-	private static final int EXECUTE = 1; // apply the move to the puzzle
-	private static final int EXPLORE = 0; // but add the possible moves coming after it to the queue
-	private static final int CANCEL = -1; // cancel the move in the puzzle (apply the reverse move)
-	
-	// for animating the moves
-	private CarMove currMove = new CarMove(-1,0); // the move being animated
-	private float moveFraction = 0; // indicates the advancement of the animation of currMove
-	private int numFrames = 10; // number of frames appearing in one cell shift
-	private int animationTimeStep; // time delay between two frames
-	private int animationShift = 0; // used to have smooth animation: avoids showing unnecessary moves canceled
-	
-
-	
+
+	// The animation
+	// the moves to show (the trace of the search, then the solution) are played one
+	// after the other by a javax.swing.Timer, at "speed" cells per second.
+	// All these fields are only used in the event dispatch thread
+	private static final int FRAME_DELAY = 15; // milliseconds between two frames
+	private static final double SOLUTION_SPEED = 5; // maximal speed when showing the solution
+	private int[] timeline = new int[1024]; // the moves to show, packed (see CarMove.pack)
+	private int timelineSize = 0;
+	private int solutionStart = Integer.MAX_VALUE; // index in the timeline of the moves of the solution
+	private int[] positions; // variable coordinates of the cars before timeline[current]
+	private int current = 0; // the move being animated
+	private double progress = 0; // number of cells of the current move already shown
+	private double speed;
+	private boolean paused = false;
+	private long lastFrame;
+	private final Timer timer = new Timer(FRAME_DELAY, e -> nextFrame());
+	private JSlider seekSlider;
+
+	// frame rate and paint time, measured over windows of FPS_WINDOW nanoseconds
+	// and shown in fpsLabel (see createControls())
+	private static final long FPS_WINDOW = 500_000_000;
+	private JLabel fpsLabel;
+	private long windowStart = System.nanoTime();
+	private int windowFrames = 0;
+	private long windowPaintNanos = 0;
+	// "no solution" when the search did not find one, shown in statusLabel
+	private String status = "";
+	private JLabel statusLabel;
+
+
+
+	// animationTimeStep: waiting time in milliseconds between two frames of the search animation
+	// of the first versions, which showed one cell shift in 20 steps. Now the speed of the animation
+	// is 50 / animationTimeStep cells per second, and there is no search animation if it is 0
 	public AnimatedSolverBFS(RushHour puzzle, int animationTimeStep) {
 		this.puzzle = puzzle;
 		PANEL_WIDTH = puzzle.parking.width * CELL_SIZE;
 		PANEL_HEIGHT = puzzle.parking.height * CELL_SIZE;
-		this.setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT)); 
-		this.setBackground(BACKGROUND);
-		this.animationTimeStep = animationTimeStep;
+		this.setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
+		this.setBackground(BoardPainter.BACKGROUND);
+		this.speed = (animationTimeStep == 0? 0 : 50.0 / animationTimeStep);
+		positions = BoardPainter.positions(puzzle);
 	}
-	
-	
-	// Method for drawing the current configuration of the puzzle, with the currMove animated
+
+
+	// Method for drawing the configuration shown by the animation, with the current move animated.
+	// Only the region given to repaint() is drawn again (see nextFrame())
 	public void paint(Graphics g) {
+		long start = System.nanoTime();
 		super.paint(g);
-		Graphics2D g2d = (Graphics2D) g;
-		
-		// draw grid
-		g2d.setColor(new Color(100,100,100));
-		for (var x = 0; x < puzzle.parking.width + 1; x++)
-			g2d.drawLine(x*CELL_SIZE, 0, x * CELL_SIZE, PANEL_HEIGHT);
-		for (var y = 0; y < puzzle.parking.height + 1; y++)
-			g2d.drawLine(0, y*CELL_SIZE, PANEL_WIDTH, y*CELL_SIZE);
-				
-		// draw cars
-		g2d.setStroke(new BasicStroke(3));
-		for (var car: puzzle.cars.values()) {
-			if (car.id == 1)
-				g2d.setColor(RED);
-			else
-				g2d.setColor(BLUE);
-			var carWidth  = (car.isHorizontal? car.size : 1);
-			var carHeight = (car.isHorizontal? 1 : car.size);
-			// animating the move
-			int dx = 0;
-			int dy = 0;
-			if (car.id == currMove.carId) {
-				if (car.isHorizontal)
-					dx += (int) ((moveFraction + animationShift) * CELL_SIZE);
-				else
-					dy += (int) ((moveFraction + animationShift) * CELL_SIZE);
-			}
-			// car fill
-			g2d.fillRoundRect(CELL_SIZE * car.x + MARGIN + dx,
-					CELL_SIZE * car.y + MARGIN + dy,
-					CELL_SIZE * carWidth - 2*MARGIN,
-					CELL_SIZE * carHeight - 2*MARGIN,
-					2*MARGIN, 2*MARGIN);
-			// car parameter
-			g2d.setColor(Color.black);
-			g2d.drawRoundRect(CELL_SIZE * car.x + MARGIN + dx,
-					CELL_SIZE * car.y + MARGIN + dy,
-					CELL_SIZE * carWidth - 2*MARGIN,
-					CELL_SIZE * carHeight - 2*MARGIN,
-					2*MARGIN, 2*MARGIN);
+		int movingCarId = -1;
+		double shift = 0;
+		if (current < timelineSize) {
+			movingCarId = CarMove.carId(timeline[current]);
+			shift = Math.signum(CarMove.dxy(timeline[current])) * progress;
 		}
+		painter.paint((Graphics2D) g, puzzle, positions, movingCarId, shift);
+		windowPaintNanos += System.nanoTime() - start;
+		windowFrames++;
 	}
-	
-	
-	
-	
-	
+
+
+
+
+
 	/**
 	 * (BFS - Backtracking) algorithm returning optimal solution to the puzzle:
 	 * ------------------------------------------------------------------------
-	 * Implements the same algorithm as SolverBFS.solve(), but contains additional
-	 * functionalities for animating the backtracking search for optimal winning moves
-	 * @remark it is easier to read SolverBFS.solve() in order to understand 
+	 * Runs the same algorithm as SolverBFS.solve() at full speed, recording the trace
+	 * of the backtracking search (see SearchTrace), then starts the animation of the
+	 * trace and returns without waiting for it, so the solving time does not depend
+	 * on the length of the animation.
+	 * @return the winning moves, null if the puzzle cannot be solved (the animation
+	 * then says "no solution")
+	 * @remark it is easier to read SolverBFS.solve() in order to understand
 	 * how the solving algorithm works
 	 */
 	public LinkedList<CarMove> solve(){
-		var winningMoves = new LinkedList<CarMove>();
-		
-		var queue = new LinkedList<MoveAction>();
-		var moves = puzzle.getPossibleMoves();
-		for (var carMove: moves)
-			queue.add(new MoveAction(carMove, EXPLORE));
-		
-		var visited = new HashSet<Integer>();
-		
-		var moveAction = queue.pop();
-		while (!queue.isEmpty()) {
-			var nextMoveAction = queue.pop();
-			var carMove = moveAction.carMove;
-			var action = moveAction.action;
-			
-			if (action == EXPLORE) {
-				puzzle.move(carMove);
-				if (puzzle.won()) {
-					puzzle.cancelMove(carMove);
-					addMove(winningMoves, carMove);
-					break;
-				}
-				int representation = puzzle.integerRepresentation();
-				if (!visited.contains(representation)) {
-					visited.add(representation);
-					queue.add(new MoveAction(carMove, EXECUTE));
-					var nextMoves = puzzle.getPossibleMoves(carMove.carId);
-					for (var nextCarMove: nextMoves)
-						queue.add(new MoveAction(nextCarMove, EXPLORE));
-					queue.add(new MoveAction(carMove, CANCEL));
-				}
-				puzzle.cancelMove(carMove);
-			} 
-			else if (action == EXECUTE) {
-				addMove(winningMoves, carMove);
-				queue.add(new MoveAction(carMove, EXECUTE));
-			}
-			else {
-				var lastMove = winningMoves.removeLast();
-				if (carMove.carId != nextMoveAction.carMove.carId)
-					animateMove(lastMove, -1);
-				else
-					animationShift = lastMove.dxy;
-				puzzle.cancelMove(lastMove);
-				queue.add(new MoveAction(carMove, CANCEL));
-			}
-			if (carMove.carId != nextMoveAction.carMove.carId)
-				animationShift = 0;
-			moveAction = nextMoveAction;
+		return solve(SolveLimits.NONE).winningMoves;
+	}
+
+	// same as solve(), stopped by the limits (see Solver.solve(puzzle, limits))
+	public SolveResult solve(SolveLimits limits){
+		var trace = SearchTrace.record(puzzle, limits);
+		var result = trace.getResult();
+		if (speed > 0) {
+			var moves = new int[trace.size()];
+			for (int i = 0; i < moves.length; i++)
+				moves[i] = trace.move(i);
+			SwingUtilities.invokeLater(() -> append(moves, false));
 		}
-		// add the final winning move: pushing the red car to exit
-		var finalMove = new CarMove(1, puzzle.distToExit());
-		addMove(winningMoves, finalMove);
-		// cancel the winningMoves to bring the puzzle back to its initial state
-		cancelMoves(puzzle, winningMoves);
-		return winningMoves;
+		if (result.status != SolveResult.Status.SOLVED) {
+			String message = (result.status == SolveResult.Status.UNSOLVABLE? "no solution" : "no solution (" + result.status + ")");
+			SwingUtilities.invokeLater(() -> showStatus(message));
+		}
+		return result;
 	}
-	
-	
-	
-	
-	// shows an animation playing the input list of moves 
+
+
+
+
+	// shows an animation playing the input list of moves, after the animation of the search
 	public void playMoves(LinkedList<CarMove> moves) {
-		var defaultNumFrames = numFrames;
-		var defaultAnimationTimeStep = animationTimeStep;
-		animationShift = 0;
-		numFrames = 100;
-		animationTimeStep = 1;
-		for (var carMove : moves) {
-			animateMove(carMove);
-			puzzle.move(carMove);
+		var packedMoves = new int[moves.size()];
+		int i = 0;
+		for (var carMove : moves)
+			packedMoves[i++] = CarMove.pack(carMove.carId, carMove.dxy);
+		SwingUtilities.invokeLater(() -> append(packedMoves, true));
+	}
+
+
+
+	/**
+	 * Controls of the animation, to put below the panel:
+	 * a pause button, the speed in cells per second, and a slider to move in the animation
+	 */
+	public JPanel createControls() {
+		var controls = new JPanel();
+		var pauseButton = new JButton("Pause");
+		pauseButton.addActionListener(e -> {
+			paused = !paused;
+			pauseButton.setText(paused? "Play" : "Pause");
+		});
+		var speedSlider = new JSlider(1, 200, (int) Math.max(1, Math.min(200, Math.round(speed))));
+		speedSlider.addChangeListener(e -> speed = speedSlider.getValue());
+		seekSlider = new JSlider(0, timelineSize, current);
+		seekSlider.addChangeListener(e -> {
+			if (seekSlider.getValue() != current)
+				seek(seekSlider.getValue());
+		});
+		controls.add(pauseButton);
+		controls.add(new JLabel("speed"));
+		controls.add(speedSlider);
+		controls.add(new JLabel("search"));
+		controls.add(seekSlider);
+		fpsLabel = new JLabel();
+		controls.add(fpsLabel);
+		statusLabel = new JLabel(status);
+		controls.add(statusLabel);
+		return controls;
+	}
+
+
+	// shows the result of the search below the animation (event dispatch thread)
+	private void showStatus(String status) {
+		this.status = status;
+		if (statusLabel != null)
+			statusLabel.setText(status);
+	}
+
+
+
+	// adds moves at the end of the animation (event dispatch thread)
+	private void append(int[] moves, boolean solution) {
+		if (timelineSize + moves.length > timeline.length)
+			timeline = Arrays.copyOf(timeline, Math.max(2 * timeline.length, timelineSize + moves.length));
+		if (solution)
+			solutionStart = Math.min(solutionStart, timelineSize);
+		System.arraycopy(moves, 0, timeline, timelineSize, moves.length);
+		timelineSize += moves.length;
+		if (seekSlider != null)
+			seekSlider.setMaximum(timelineSize);
+		if (!timer.isRunning()) {
+			lastFrame = System.nanoTime();
+			timer.start();
 		}
-		numFrames = defaultNumFrames;
-		animationShift = defaultAnimationTimeStep;
 	}
-	
-	
-	
-	// cancels a list of last played moves, changes the puzzle accordingly and shows animation
-	private void cancelMoves(RushHour puzzle, LinkedList<CarMove> prevMoves) {
-		var reversedMoves = new LinkedList<CarMove>();
-		for (var carMove: prevMoves)
-			reversedMoves.addFirst(carMove);
-		for (var carMove: reversedMoves) {
-			animateMove(carMove, -1);
-			puzzle.cancelMove(carMove);
+
+
+	// called by the timer: advances the animation by the time elapsed since the last frame
+	private void nextFrame() {
+		long now = System.nanoTime();
+		// the solution is shown slower, even without animation of the search
+		double frameSpeed = speed;
+		if (current >= solutionStart)
+			frameSpeed = (speed == 0? SOLUTION_SPEED : Math.min(speed, SOLUTION_SPEED));
+		double cells = (paused? 0 : (now - lastFrame) / 1e9 * frameSpeed);
+		lastFrame = now;
+		// the region to draw again: the cars moved in the frame, before and after their moves
+		Rectangle dirty = null;
+		while (cells > 0 && current < timelineSize) {
+			dirty = union(dirty, movingBounds());
+			int move = timeline[current];
+			double remaining = Math.abs(CarMove.dxy(move)) - progress;
+			if (cells < remaining) {
+				progress += cells;
+				break;
+			}
+			cells -= remaining;
+			int carId = CarMove.carId(move);
+			positions[carId] += CarMove.dxy(move);
+			dirty = union(dirty, painter.bounds(puzzle.cars[carId], positions[carId]));
+			current++;
+			progress = 0;
+		}
+		if (dirty != null) {
+			repaint(union(dirty, movingBounds()));
+			if (seekSlider != null)
+				seekSlider.setValue(current);
 		}
-			
+		showFrameRate(now);
+		if (current == timelineSize)
+			timer.stop();
 	}
-	
-	
-	// Adds carMove to winningMoves, applies it to the puzzle, and shows animation
-	private void addMove(LinkedList<CarMove> winningMoves, CarMove carMove) {
-		winningMoves.add(carMove);
-		animateMove(new CarMove(carMove.carId, carMove.dxy - animationShift));
-		puzzle.move(carMove);
+
+
+	// pixels of the car moving in the animation, null if none
+	private Rectangle movingBounds() {
+		if (current >= timelineSize)
+			return null;
+		int move = timeline[current];
+		int carId = CarMove.carId(move);
+		return painter.bounds(puzzle.cars[carId], positions[carId] + Math.signum(CarMove.dxy(move)) * progress);
 	}
-	
-	
-	
-	// Shows an animation of playing carMove, we can specify an optional argument
-	// of direction: when (direction = -1) show animation of the opposite move
-	private void animateMove(CarMove carMove) {
-		animateMove(carMove, 1);
+
+	private static Rectangle union(Rectangle a, Rectangle b) {
+		return (a == null? b : b == null? a : a.union(b));
 	}
-	
-	private void animateMove(CarMove carMove, int direction) {
-		if (animationTimeStep == 0)
+
+
+	// shows the frames per second and the paint time of the last window in fpsLabel
+	private void showFrameRate(long now) {
+		if (now - windowStart < FPS_WINDOW)
 			return;
-		currMove = carMove;
-		moveFraction = 0;
-		int signDxy = (carMove.dxy > 0 ? 1 : -1);
-		for (int i = 1; i < numFrames * signDxy * carMove.dxy; i++) {
-			moveFraction += signDxy * direction / (float) numFrames;
-			wait(animationTimeStep);
-			repaint();
-			wait(animationTimeStep);
+		if (fpsLabel != null)
+			fpsLabel.setText(String.format("%.0f fps, %.2f ms per frame", windowFrames * 1e9 / (now - windowStart),
+					(windowFrames == 0? 0 : windowPaintNanos / 1e6 / windowFrames)));
+		windowStart = now;
+		windowFrames = 0;
+		windowPaintNanos = 0;
+	}
+
+
+	// shows the configuration before the move "target" of the animation
+	private void seek(int target) {
+		positions = BoardPainter.positions(puzzle);
+		for (int i = 0; i < target; i++)
+			positions[CarMove.carId(timeline[i])] += CarMove.dxy(timeline[i]);
+		current = target;
+		progress = 0;
+		repaint();
+		if (current < timelineSize && !timer.isRunning()) {
+			lastFrame = System.nanoTime();
+			timer.start();
 		}
-		currMove = new CarMove(-1,0);
-		moveFraction = 0;
-		
 	}
-	
-	
-	
+
+
+
 	public void wait(int milliseconds) {
 		try {
 		  Thread.sleep(milliseconds);
@@ -238,6 +278,6 @@ public class AnimatedSolverBFS extends JPanel {
 		  Thread.currentThread().interrupt();
 		}
 	}
-	
-	
+
+
 }
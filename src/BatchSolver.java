@@ -0,0 +1,147 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Headless batch solving of a corpus of puzzles:
+ * ----------------------------------------------
+ * - the input file has one puzzle per line in the format of PuzzleFormat
+ *   (lines of the database of https://www.michaelfogleman.com/rush/ can be used
+ *   directly), empty lines and lines starting with # are ignored,
+ * - the puzzles are solved concurrently by a fixed number of worker threads, the
+ *   reader solves the next puzzle itself when the queue of pending puzzles is full,
+ *   so the memory used does not depend on the size of the corpus,
+ * - each result is written to the output file as soon as it is found, as a line
+ *   "lineNumber board moves expanded timeMs winningMoves" (tab separated, moves = -1
+ *   if the puzzle cannot be solved), so the lines are not in the input order,
+ * - each search can be limited in time and number of configurations: a search cut off
+ *   by a limit gives moves = -1 and the reason (SolveResult.Status) instead of the moves.
+ * Usage: java BatchSolver input output [threads] [solver] [timeoutMs] [maxStates]
+ * (solver is one of the names of Solver.named(), astar by default, 0 for no limit)
+ */
+public class BatchSolver {
+	// number of puzzles waiting for a worker, per worker
+	private static final int QUEUE_PER_THREAD = 64;
+
+	private final int threads;
+	// one solver per worker thread, the solvers are not thread safe
+	private final ThreadLocal<Solver> solvers;
+	// limits of each search, timeoutMillis = 0 and maxStates = 0 for no limit
+	private final long timeoutMillis;
+	private final int maxStates;
+
+
+	public BatchSolver(int threads, String solverName) {
+		this(threads, solverName, 0, 0);
+	}
+
+	public BatchSolver(int threads, String solverName, long timeoutMillis, int maxStates) {
+		this.threads = threads;
+		this.timeoutMillis = timeoutMillis;
+		this.maxStates = maxStates;
+		Solver.named(solverName); // check the name
+		this.solvers = ThreadLocal.withInitial(() -> Solver.named(solverName));
+	}
+
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			System.out.println("usage: java BatchSolver input output [threads] [solver] [timeoutMs] [maxStates]");
+			return;
+		}
+		int threads = (args.length > 2? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors());
+		String solver = (args.length > 3? args[3] : "astar");
+		long timeoutMillis = (args.length > 4? Long.parseLong(args[4]) : 0);
+		int maxStates = (args.length > 5? Integer.parseInt(args[5]) : 0);
+		long start = System.nanoTime();
+		int solved;
+		try (var input = new BufferedReader(new FileReader(args[0]));
+				var output = new BufferedWriter(new FileWriter(args[1]))) {
+			solved = new BatchSolver(threads, solver, timeoutMillis, maxStates).solveAll(input, output);
+		}
+		System.out.printf("%d puzzles processed in %.1f s with %d threads (%s)%n",
+				solved, (System.nanoTime() - start) / 1e9, threads, solver);
+	}
+
+
+	/**
+	 * Solves all the puzzles read from input and writes the results to output.
+	 * When writing a result fails, no more puzzles are read nor solved and the first
+	 * failure is thrown once the workers are done
+	 * @return the number of puzzles read
+	 */
+	public int solveAll(BufferedReader input, Writer output) throws IOException, InterruptedException {
+		// when the queue is full, the reading thread solves the puzzle itself
+		var pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_PER_THREAD * threads),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		// the first failure of write(), thrown by the workers would only kill them
+		var writeFailure = new AtomicReference<IOException>();
+		int count = 0;
+		int lineNumber = 0;
+		String line;
+		while (writeFailure.get() == null && (line = input.readLine()) != null) {
+			lineNumber++;
+			if (line.isBlank() || line.startsWith("#"))
+				continue;
+			count++;
+			int number = lineNumber;
+			String puzzleLine = line;
+			pool.execute(() -> {
+				if (writeFailure.get() == null) // the puzzles queued after a failure are not solved
+					write(output, solveLine(number, puzzleLine), writeFailure);
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		if (writeFailure.get() != null)
+			throw writeFailure.get();
+		output.flush();
+		return count;
+	}
+
+
+	// solves the puzzle of a line and returns the result line
+	private String solveLine(int lineNumber, String line) {
+		try {
+			var puzzle = PuzzleFormat.parse(line);
+			var solver = solvers.get();
+			long start = System.nanoTime();
+			var result = solver.solve(puzzle, new SolveLimits(timeoutMillis, maxStates, 0));
+			long time = System.nanoTime() - start;
+			var winningMoves = (result.status == SolveResult.Status.SOLVED? result.winningMoves : null);
+			return lineNumber + "\t" + PuzzleFormat.format(puzzle)
+					+ "\t" + (winningMoves == null? -1 : winningMoves.size())
+					+ "\t" + (solver.getStats() == null? -1 : solver.getStats().getExpanded())
+					+ "\t" + String.format("%.3f", time / 1e6)
+					+ "\t" + (winningMoves != null? PuzzleFormat.formatMoves(winningMoves)
+							: result.status.isCutOff()? result.status : "");
+		} catch (Error | RuntimeException e) {
+			// an exception of the parser or the solver gives an error line rather than no line
+			return lineNumber + "\terror\t" + e.getMessage();
+		}
+	}
+
+
+	// the writer is shared by the workers, the first exception is kept in failure
+	// and the next results are dropped
+	private static void write(Writer output, String resultLine, AtomicReference<IOException> failure) {
+		synchronized (output) {
+			if (failure.get() != null)
+				return;
+			try {
+				output.write(resultLine);
+				output.write('\n');
+			} catch (IOException e) {
+				failure.compareAndSet(null, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,191 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+
+/**
+ * Drawing of a configuration of a puzzle, shared by the Swing animation
+ * (AnimatedSolverBFS) and the headless export of solutions (SolutionExporter):
+ * the cars are drawn at the variable coordinates given in "positions" (indexed
+ * by car id) instead of their coordinates in the puzzle, and one car can be
+ * drawn shifted by a fraction of cell to animate its move.
+ * The parts that do not move (background, grid, walls and exit) are drawn once
+ * in an image, at the resolution of the device (high-DPI displays), and copied
+ * on each paint. Only the cars intersecting the clip of the graphics are drawn,
+ * so repainting the region of a moving car costs the same on any board.
+ * A painter can be shared by several threads (see SolutionExporter): the image is
+ * published together with its puzzle and scale once it is fully drawn.
+ */
+public class BoardPainter {
+	static final Color BACKGROUND = new Color(200,200,170);
+	static final Color GRID = new Color(100,100,100);
+	static final Color RED = new Color(220,0,0);
+	static final Color BLUE = new Color(0,120,170);
+	static final Color BORDER = Color.black;
+	static final Color WALL = new Color(60,60,60);
+	// all the colors of a drawing, for images with an indexed palette (GIF)
+	static final IndexColorModel PALETTE = palette(BACKGROUND, GRID, RED, BLUE, BORDER, WALL);
+
+	final int cellSize;
+	final int margin;
+	private final BasicStroke carStroke = new BasicStroke(3);
+	// the static parts of the drawing of the last puzzle painted
+	private volatile Background background;
+
+
+	public BoardPainter(int cellSize) {
+		this.cellSize = cellSize;
+		this.margin = cellSize / 8;
+	}
+
+
+	// size in pixels of the drawing of a puzzle
+	public int width(RushHour puzzle) {
+		return puzzle.parking.width * cellSize;
+	}
+
+	public int height(RushHour puzzle) {
+		return puzzle.parking.height * cellSize;
+	}
+
+
+	/**
+	 * Draws the background, the grid, the walls, the exit and the cars of the puzzle
+	 * @param positions: variable coordinates of the cars, indexed by their ids
+	 * @param movingCarId: id of a car drawn shifted by "shift" cells (-1 for none)
+	 */
+	public void paint(Graphics2D g2d, RushHour puzzle, int[] positions, int movingCarId, double shift) {
+		g2d.drawImage(background(puzzle, g2d.getTransform().getScaleX()), 0, 0, width(puzzle), height(puzzle), null);
+
+		// draw cars
+		var stroke = g2d.getStroke();
+		g2d.setStroke(carStroke);
+		var clip = g2d.getClipBounds();
+		var carBounds = new Rectangle(); // reused for all the cars
+		for (var car: puzzle.cars) {
+			if (car == null) // unused ids
+				continue;
+			var carWidth  = (car.isHorizontal? car.size : 1);
+			var carHeight = (car.isHorizontal? 1 : car.size);
+			double position = positions[car.id] + (car.id == movingCarId? shift : 0);
+			if (clip != null && !clip.intersects(bounds(car, position, carBounds)))
+				continue;
+			int x = (car.isHorizontal? (int) (position * cellSize) : car.x * cellSize);
+			int y = (car.isHorizontal? car.y * cellSize : (int) (position * cellSize));
+			// car fill
+			g2d.setColor(car.id == 1? RED : BLUE);
+			g2d.fillRoundRect(x + margin, y + margin,
+					cellSize * carWidth - 2*margin,
+					cellSize * carHeight - 2*margin,
+					2*margin, 2*margin);
+			// car parameter
+			g2d.setColor(BORDER);
+			g2d.drawRoundRect(x + margin, y + margin,
+					cellSize * carWidth - 2*margin,
+					cellSize * carHeight - 2*margin,
+					2*margin, 2*margin);
+		}
+		g2d.setStroke(stroke);
+	}
+
+
+	// pixels covered by the drawing of the car at the variable coordinate "position"
+	// (a fraction of cell for a moving car), including its border
+	public Rectangle bounds(Car car, double position) {
+		return bounds(car, position, new Rectangle());
+	}
+
+	private Rectangle bounds(Car car, double position, Rectangle bounds) {
+		int x = (car.isHorizontal? (int) (position * cellSize) : car.x * cellSize);
+		int y = (car.isHorizontal? car.y * cellSize : (int) (position * cellSize));
+		int stroke = (int) Math.ceil(carStroke.getLineWidth());
+		bounds.setBounds(x - stroke, y - stroke,
+				(car.isHorizontal? car.size : 1) * cellSize + 2 * stroke + 1,
+				(car.isHorizontal? 1 : car.size) * cellSize + 2 * stroke + 1);
+		return bounds;
+	}
+
+
+	// the image of the background of a puzzle at a scale, never modified once published
+	private static class Background {
+		final BufferedImage image;
+		final RushHour puzzle;
+		final double scale;
+
+		Background(BufferedImage image, RushHour puzzle, double scale) {
+			this.image = image;
+			this.puzzle = puzzle;
+			this.scale = scale;
+		}
+	}
+
+
+	// the background, the grid, the walls and the exit of the puzzle, drawn again
+	// only when the puzzle or the scale of the device changes
+	private BufferedImage background(RushHour puzzle, double scale) {
+		var cached = background;
+		if (cached != null && cached.puzzle == puzzle && cached.scale == scale)
+			return cached.image;
+		int width = width(puzzle);
+		int height = height(puzzle);
+		// drawn in a local image, other threads keep using the previous one until it is published
+		var image = new BufferedImage((int) Math.ceil(width * scale), (int) Math.ceil(height * scale), BufferedImage.TYPE_INT_RGB);
+		var g2d = image.createGraphics();
+		g2d.scale(scale, scale);
+		g2d.setColor(BACKGROUND);
+		g2d.fillRect(0, 0, width, height);
+
+		// draw grid
+		g2d.setColor(GRID);
+		for (var x = 0; x < puzzle.parking.width + 1; x++)
+			g2d.drawLine(x*cellSize, 0, x * cellSize, height);
+		for (var y = 0; y < puzzle.parking.height + 1; y++)
+			g2d.drawLine(0, y*cellSize, width, y*cellSize);
+
+		// draw walls
+		g2d.setColor(WALL);
+		for (var y = 0; y < puzzle.parking.height; y++)
+			for (var x = 0; x < puzzle.parking.width; x++)
+				if (puzzle.parking.isWall(x, y))
+					g2d.fillRect(x * cellSize, y * cellSize, cellSize, cellSize);
+
+		// draw the exit: a mark on the border, at the end of the red car's lane
+		var redCar = puzzle.cars[1];
+		if (redCar != null) {
+			int exit = puzzle.getExit();
+			int lane = (redCar.isHorizontal? redCar.y : redCar.x) * cellSize;
+			int x = (exit == RushHour.EXIT_RIGHT? width - margin : exit == RushHour.EXIT_LEFT? 0 : lane);
+			int y = (exit == RushHour.EXIT_BOTTOM? height - margin : exit == RushHour.EXIT_TOP? 0 : lane);
+			g2d.setColor(RED);
+			g2d.fillRect(x, y, (redCar.isHorizontal? margin : cellSize), (redCar.isHorizontal? cellSize : margin));
+		}
+		g2d.dispose();
+		background = new Background(image, puzzle, scale);
+		return image;
+	}
+
+
+	// variable coordinates of the cars of the puzzle in its current configuration
+	static int[] positions(RushHour puzzle) {
+		var positions = new int[puzzle.getNumCars() + 1];
+		for (int carId = 1; carId < positions.length; carId++)
+			if (puzzle.cars[carId] != null)
+				positions[carId] = puzzle.cars[carId].getVariableCoordinate();
+		return positions;
+	}
+
+
+	private static IndexColorModel palette(Color... colors) {
+		var r = new byte[colors.length];
+		var g = new byte[colors.length];
+		var b = new byte[colors.length];
+		for (int i = 0; i < colors.length; i++) {
+			r[i] = (byte) colors[i].getRed();
+			g[i] = (byte) colors[i].getGreen();
+			b[i] = (byte) colors[i].getBlue();
+		}
+		return new IndexColorModel(8, colors.length, r, g, b);
+	}
+}
@@ -0,0 +1,155 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Distance to the goal of every configuration of a cluster:
+ * ---------------------------------------------------------
+ * - the cluster of a puzzle is the set of all the configurations reachable from it
+ *   by moving the cars (it is the same for all of them, since moves can be reversed),
+ * - the constructor enumerates the cluster with a BFS from the puzzle, then runs a
+ *   backward BFS from all the winning configurations (won() is true) to get for each
+ *   configuration its distance to the goal (number of moves to win, including the final
+ *   move of the red car) and an optimal next move,
+ * - then, for any configuration of the cluster, distance() and bestMove() only compute
+ *   its key and look it up in the tables.
+ * This is used to answer hints in constant time instead of solving the puzzle again.
+ */
+public class ClusterOracle {
+	private final PuzzleGeometry geometry;
+	private final StateStore cluster = new StateStore();
+	// indexed as the configurations in the cluster store
+	private short[] distances;   // -1 if the puzzle cannot be won from the configuration
+	private int[] bestMoves;     // packed moves, see CarMove.pack
+	private int maxDistance = -1;
+	private int hardest = -1;   // index of a configuration at the maximal distance
+
+
+	public ClusterOracle(RushHour puzzle) {
+		geometry = new PuzzleGeometry(puzzle);
+		var positions = new int[geometry.numCars + 1];
+		var rows = new long[geometry.height];
+		var cols = new long[geometry.width];
+		var moves = new int[geometry.maxMoves];
+
+		// enumerate the cluster, and collect the winning configurations
+		var winning = new int[16];
+		int numWinning = 0;
+		cluster.add(puzzle.longRepresentation(), -1, 0);
+		for (int index = 0; index < cluster.size(); index++) {
+			long key = cluster.key(index);
+			geometry.decode(key, positions);
+			geometry.fillBoard(positions, rows, cols);
+			if (geometry.won(positions, rows, cols)) {
+				if (numWinning == winning.length)
+					winning = Arrays.copyOf(winning, 2 * numWinning);
+				winning[numWinning++] = index;
+			}
+			int numMoves = geometry.possibleMoves(positions, rows, cols, -1, moves);
+			for (int i = 0; i < numMoves; i++)
+				cluster.add(geometry.play(key, moves[i]), index, moves[i]);
+		}
+
+		// backward BFS from the winning configurations
+		distances = new short[cluster.size()];
+		bestMoves = new int[cluster.size()];
+		Arrays.fill(distances, (short) -1);
+		var queue = new int[cluster.size()];
+		int queueEnd = 0;
+		for (int i = 0; i < numWinning; i++) {
+			int index = winning[i];
+			geometry.decode(cluster.key(index), positions);
+			distances[index] = 1;
+			bestMoves[index] = CarMove.pack(1, geometry.distToExit(positions));
+			queue[queueEnd++] = index;
+		}
+		for (int head = 0; head < queueEnd; head++) {
+			int index = queue[head];
+			long key = cluster.key(index);
+			if (distances[index] > maxDistance) {
+				maxDistance = distances[index];
+				hardest = index;
+			}
+			geometry.decode(key, positions);
+			geometry.fillBoard(positions, rows, cols);
+			int numMoves = geometry.possibleMoves(positions, rows, cols, -1, moves);
+			for (int i = 0; i < numMoves; i++) {
+				int neighbour = cluster.indexOf(geometry.play(key, moves[i]));
+				if (distances[neighbour] != -1)
+					continue;
+				distances[neighbour] = (short) (distances[index] + 1);
+				// the opposite move goes from the neighbour to this configuration
+				bestMoves[neighbour] = CarMove.pack(CarMove.carId(moves[i]), -CarMove.dxy(moves[i]));
+				queue[queueEnd++] = neighbour;
+			}
+		}
+	}
+
+
+	// number of configurations in the cluster
+	public int size() {
+		return cluster.size();
+	}
+
+
+	/**
+	 * @return the number of moves needed to win from the current configuration of the
+	 * puzzle (including the final move of the red car), or -1 if it cannot be won.
+	 * An error is thrown if the configuration is not in the cluster
+	 */
+	public int distance(RushHour position) {
+		return distances[indexOf(position)];
+	}
+
+
+	// an optimal move in the current configuration of the puzzle, null if it cannot be won
+	public CarMove bestMove(RushHour position) {
+		int index = indexOf(position);
+		if (distances[index] == -1)
+			return null;
+		return CarMove.unpack(bestMoves[index]);
+	}
+
+
+	// the optimal list of moves from the current configuration of the puzzle, as returned
+	// by the solvers (null if it cannot be won), without solving the puzzle again
+	public LinkedList<CarMove> solution(RushHour position) {
+		int index = indexOf(position);
+		if (distances[index] == -1)
+			return null;
+		var winningMoves = new LinkedList<CarMove>();
+		long key = cluster.key(index);
+		while (distances[index] > 1) {
+			winningMoves.add(CarMove.unpack(bestMoves[index]));
+			key = geometry.play(key, bestMoves[index]);
+			index = cluster.indexOf(key);
+		}
+		winningMoves.add(CarMove.unpack(bestMoves[index]));
+		return winningMoves;
+	}
+
+
+	// the largest distance to the goal in the cluster, -1 if the puzzle cannot be won
+	public int maxDistance() {
+		return maxDistance;
+	}
+
+	// a configuration of the cluster at the largest distance to the goal, null if the puzzle cannot be won
+	public RushHour hardestPuzzle() {
+		if (hardest == -1)
+			return null;
+		var positions = new int[geometry.numCars + 1];
+		geometry.decode(cluster.key(hardest), positions);
+		return geometry.toRushHour(positions);
+	}
+
+
+	// index of the configuration of the puzzle in the cluster
+	private int indexOf(RushHour position) {
+		if (!geometry.matches(position))
+			throw new Error("the puzzle does not have the cars of the cluster");
+		int index = cluster.indexOf(position.longRepresentation());
+		if (index == -1)
+			throw new Error("the configuration is not in the cluster");
+		return index;
+	}
+}
@@ -0,0 +1,205 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader and writer, for the requests and responses of SolverServer:
+ * - parse() returns a Map (objects, in the order of their keys), a List, a String,
+ *   a Double, a Boolean or null, and throws an Error on invalid input,
+ * - quote() writes a string literal, the rest of the output is written by hand.
+ */
+public class Json {
+	private final String text;
+	private int i = 0;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+
+	public static Object parse(String text) {
+		var parser = new Json(text);
+		var value = parser.value();
+		parser.skipSpaces();
+		if (parser.i != text.length())
+			throw parser.error("end of input expected");
+		return value;
+	}
+
+
+	// the string as a JSON string literal
+	public static String quote(String s) {
+		var out = new StringBuilder(s.length() + 2).append('"');
+		for (int k = 0; k < s.length(); k++) {
+			char c = s.charAt(k);
+			switch (c) {
+			case '"': out.append("\\\""); break;
+			case '\\': out.append("\\\\"); break;
+			case '\n': out.append("\\n"); break;
+			case '\r': out.append("\\r"); break;
+			case '\t': out.append("\\t"); break;
+			default:
+				if (c < 0x20)
+					out.append(String.format("\\u%04x", (int) c));
+				else
+					out.append(c);
+			}
+		}
+		return out.append('"').toString();
+	}
+
+
+	// the integer value of a field of an object, or defaultValue if it is missing
+	static int intField(Map<?, ?> object, String name, int defaultValue) {
+		var value = object.get(name);
+		if (value == null)
+			return defaultValue;
+		if (!(value instanceof Double) || (Double) value != Math.rint((Double) value))
+			throw new Error("the field " + name + " must be an integer");
+		return ((Double) value).intValue();
+	}
+
+
+
+	private Object value() {
+		skipSpaces();
+		if (i == text.length())
+			throw error("value expected");
+		char c = text.charAt(i);
+		switch (c) {
+		case '{': return object();
+		case '[': return array();
+		case '"': return string();
+		case 't': return literal("true", Boolean.TRUE);
+		case 'f': return literal("false", Boolean.FALSE);
+		case 'n': return literal("null", null);
+		default:
+			if (c == '-' || (c >= '0' && c <= '9'))
+				return number();
+			throw error("unexpected character '" + c + "'");
+		}
+	}
+
+	private Map<String, Object> object() {
+		var object = new LinkedHashMap<String, Object>();
+		i++; // {
+		skipSpaces();
+		if (peek() == '}') {
+			i++;
+			return object;
+		}
+		while (true) {
+			skipSpaces();
+			if (peek() != '"')
+				throw error("key expected");
+			var key = string();
+			skipSpaces();
+			expect(':');
+			object.put(key, value());
+			skipSpaces();
+			if (peek() == ',') {
+				i++;
+				continue;
+			}
+			expect('}');
+			return object;
+		}
+	}
+
+	private List<Object> array() {
+		var array = new ArrayList<Object>();
+		i++; // [
+		skipSpaces();
+		if (peek() == ']') {
+			i++;
+			return array;
+		}
+		while (true) {
+			array.add(value());
+			skipSpaces();
+			if (peek() == ',') {
+				i++;
+				continue;
+			}
+			expect(']');
+			return array;
+		}
+	}
+
+	private String string() {
+		var out = new StringBuilder();
+		i++; // opening quote
+		while (true) {
+			if (i >= text.length())
+				throw error("unterminated string");
+			char c = text.charAt(i++);
+			if (c == '"')
+				return out.toString();
+			if (c != '\\') {
+				out.append(c);
+				continue;
+			}
+			if (i >= text.length())
+				throw error("unterminated string");
+			char escaped = text.charAt(i++);
+			switch (escaped) {
+			case '"': case '\\': case '/': out.append(escaped); break;
+			case 'b': out.append('\b'); break;
+			case 'f': out.append('\f'); break;
+			case 'n': out.append('\n'); break;
+			case 'r': out.append('\r'); break;
+			case 't': out.append('\t'); break;
+			case 'u':
+				if (i + 4 > text.length())
+					throw error("invalid unicode escape");
+				try {
+					out.append((char) Integer.parseInt(text.substring(i, i + 4), 16));
+				} catch (NumberFormatException e) {
+					throw error("invalid unicode escape");
+				}
+				i += 4;
+				break;
+			default: throw error("invalid escape \\" + escaped);
+			}
+		}
+	}
+
+	private Double number() {
+		int start = i;
+		while (i < text.length() && "+-0123456789.eE".indexOf(text.charAt(i)) != -1)
+			i++;
+		try {
+			return Double.valueOf(text.substring(start, i));
+		} catch (NumberFormatException e) {
+			throw error("invalid number");
+		}
+	}
+
+	private Object literal(String word, Object value) {
+		if (!text.startsWith(word, i))
+			throw error(word + " expected");
+		i += word.length();
+		return value;
+	}
+
+
+	private void skipSpaces() {
+		while (i < text.length() && Character.isWhitespace(text.charAt(i)))
+			i++;
+	}
+
+	private char peek() {
+		return (i < text.length()? text.charAt(i) : 0);
+	}
+
+	private void expect(char c) {
+		if (peek() != c)
+			throw error("'" + c + "' expected");
+		i++;
+	}
+
+	private Error error(String message) {
+		return new Error("invalid JSON at " + i + ": " + message);
+	}
+}
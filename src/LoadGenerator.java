@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator for SolverServer:
+ * --------------------------------
+ * "clients" concurrent clients send "requests" POST /solve requests in total, taking
+ * the puzzles of the file (format of PuzzleFormat) in turn, and each client waits for
+ * its response before sending the next request. It prints the throughput, the latency
+ * percentiles measured by the clients, and the number of responses by HTTP code and
+ * status, then the metrics of the server.
+ * Usage: java LoadGenerator url puzzles.txt [clients] [requests]
+ * (url of the server, for example http://localhost:8080)
+ */
+public class LoadGenerator {
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int clients = (args.length > 2? Integer.parseInt(args[2]) : 16);
+		int requests = (args.length > 3? Integer.parseInt(args[3]) : 1000);
+		if (args.length < 2 || clients < 1 || requests < 1) {
+			System.out.println("usage: java LoadGenerator url puzzles.txt [clients] [requests]");
+			System.out.println("(at least 1 client and 1 request)");
+			return;
+		}
+		var url = args[0].replaceAll("/+$", "");
+		var boards = new ArrayList<String>();
+		for (var line: Files.readAllLines(Path.of(args[1])))
+			if (!line.isBlank() && !line.startsWith("#"))
+				boards.add(PuzzleFormat.format(PuzzleFormat.parse(line)));
+		if (boards.isEmpty())
+			throw new Error("no puzzle in " + args[1]);
+
+		var client = HttpClient.newHttpClient();
+		var next = new AtomicInteger();
+		var latencies = new long[requests];
+		var outcomes = new ConcurrentHashMap<String, LongAdder>();
+		var pool = Executors.newFixedThreadPool(clients);
+		var tasks = new ArrayList<Future<?>>();
+		long start = System.nanoTime();
+		for (int c = 0; c < clients; c++)
+			tasks.add(pool.submit(() -> {
+				for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+					var request = HttpRequest.newBuilder(URI.create(url + "/solve"))
+							.POST(HttpRequest.BodyPublishers.ofString(boards.get(i % boards.size()))).build();
+					long sent = System.nanoTime();
+					String outcome;
+					try {
+						var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+						outcome = response.statusCode() + " " + status(response.body());
+					} catch (IOException e) {
+						outcome = "failed " + e.getClass().getSimpleName();
+					}
+					latencies[i] = System.nanoTime() - sent;
+					outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+				}
+				return null;
+			}));
+		for (var task: tasks)
+			try {
+				task.get();
+			} catch (Exception e) {
+				throw new Error("load generation failed", e);
+			}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		pool.shutdown();
+
+		Arrays.sort(latencies);
+		System.out.printf("%d requests by %d clients in %.2f s: %.1f requests/s%n", requests, clients, seconds, requests / seconds);
+		System.out.printf("latency ms: p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n",
+				SolverReport.percentileMillis(latencies, 0.5), SolverReport.percentileMillis(latencies, 0.9),
+				SolverReport.percentileMillis(latencies, 0.99), latencies[requests - 1] / 1e6);
+		outcomes.forEach((outcome, count) -> System.out.println(outcome + ": " + count.sum()));
+		try {
+			var metrics = client.send(HttpRequest.newBuilder(URI.create(url + "/metrics")).build(), HttpResponse.BodyHandlers.ofString());
+			System.out.println("server metrics: " + metrics.body());
+		} catch (IOException e) {
+			System.out.println("no metrics: " + e);
+		}
+	}
+
+
+	// the status of a response of /solve, or "error"
+	private static String status(String body) {
+		try {
+			var response = (Map<?, ?>) Json.parse(body);
+			return String.valueOf(response.containsKey("status")? response.get("status") : "error");
+		} catch (Error | ClassCastException e) {
+			return "invalid response";
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Expansion of blocks of configurations:
+ * --------------------------------------
+ * - slideRanges() takes the keys of a block of configurations of a PuzzleGeometry and
+ *   computes, for every car of every configuration, the number of free cells before and
+ *   after the car in its lane: the car can slide by -before,...,-1 and 1,...,after,
+ * - moves() turns the ranges of one configuration into its packed moves, in the same
+ *   order as RushHour.getPossibleMoves() and PuzzleGeometry.possibleMoves(),
+ * - this class computes the ranges one configuration at a time, with the bitboards
+ *   of PuzzleGeometry, and works with any geometry. MoveKernel.of() returns instead a
+ *   VectorMoveKernel computing the ranges of several configurations at once with the
+ *   Vector API, when the JVM is started with --add-modules jdk.incubator.vector and
+ *   the geometry has keys of a single long, and this class otherwise. Both give the
+ *   same ranges.
+ * A kernel owns its buffers: each thread needs its own kernel.
+ */
+public class MoveKernel {
+	final PuzzleGeometry geometry;
+	private final int[] positions;
+	private final long[] rows;
+	private final long[] cols;
+
+
+	MoveKernel(PuzzleGeometry geometry) {
+		this.geometry = geometry;
+		positions = new int[geometry.numCars + 1];
+		rows = new long[geometry.height];
+		cols = new long[geometry.width];
+	}
+
+
+	// the kernel computing one configuration at a time
+	public static MoveKernel scalar(PuzzleGeometry geometry) {
+		return new MoveKernel(geometry);
+	}
+
+	// the vector kernel if the Vector API can be used for this geometry, the scalar kernel otherwise
+	public static MoveKernel of(PuzzleGeometry geometry) {
+		if (geometry.keyWords == 1 && vectorAvailable()) {
+			try {
+				// loaded by reflection, so the classes of the module are never needed without it
+				return (MoveKernel) Class.forName("VectorMoveKernel")
+						.getDeclaredConstructor(PuzzleGeometry.class).newInstance(geometry);
+			} catch (ReflectiveOperationException | LinkageError e) {
+				// the module is present but cannot be used: scalar kernel
+			}
+		}
+		return scalar(geometry);
+	}
+
+	// true if the JVM was started with the module jdk.incubator.vector
+	public static boolean vectorAvailable() {
+		return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+	}
+
+	// "scalar" or "vector"
+	public String name() {
+		return "scalar";
+	}
+
+
+	/**
+	 * For the count configurations whose keys are written one after the other from
+	 * keys[offset] (geometry.keyWords longs each), writes the number of free cells before
+	 * and after the car carId in the configuration i in before[carId * count + i] and
+	 * after[carId * count + i] (before and after have at least (numCars + 1) * count ints)
+	 */
+	public void slideRanges(long[] keys, int offset, int count, int[] before, int[] after) {
+		for (int i = 0; i < count; i++) {
+			geometry.decode(keys, offset + i * geometry.keyWords, positions);
+			geometry.fillBoard(positions, rows, cols);
+			for (int carId = 1; carId < geometry.numCars + 1; carId++) {
+				long carLane = (geometry.isHorizontal[carId]? rows[geometry.lane[carId]] : cols[geometry.lane[carId]]);
+				before[carId * count + i] = Parking.freeCellsBefore(carLane, positions[carId]);
+				after[carId * count + i] = Parking.freeCellsAfter(carLane, positions[carId] + geometry.size[carId], geometry.laneLength[carId]);
+			}
+		}
+	}
+
+
+	/**
+	 * Writes the possible moves of the configuration i of a block of count configurations,
+	 * from its ranges computed by slideRanges(), except the moves of ignoreCarId, in the buffer
+	 * "moves" (of length at least geometry.maxMoves) as packed moves (see CarMove.pack)
+	 * @return the number of moves written
+	 */
+	public int moves(int[] before, int[] after, int count, int i, int ignoreCarId, int[] moves) {
+		int numMoves = 0;
+		for (int carId = 1; carId < geometry.numCars + 1; carId++) {
+			if (carId == ignoreCarId)
+				continue;
+			for (int dxy = 1; dxy <= before[carId * count + i]; dxy++)
+				moves[numMoves++] = CarMove.pack(carId, -dxy);
+			for (int dxy = 1; dxy <= after[carId * count + i]; dxy++)
+				moves[numMoves++] = CarMove.pack(carId, dxy);
+		}
+		return numMoves;
+	}
+}
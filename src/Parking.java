@@ -3,77 +3,151 @@ public class Parking {
 	
 	final int width;
 	final int height;
-	private int[][] board;
+	// The board is stored as bitboards, one long per lane:
+	// - bit x of rows[y] is set if the cell (x,y) is occupied
+	// - bit y of cols[x] is set if the cell (x,y) is occupied (transposed board)
+	// so testing cells and finding the free cells around a car are mask operations
+	private long[] rows;
+	private long[] cols;
+	// the walls: cells that are always occupied, with the same layout as rows
+	private long[] walls;
 			
 	Parking(int width, int height){
+		if (width > 64 || height > 64)
+			throw new Error("the parking cannot be wider or higher than 64 cells");
 		this.width = width;
 		this.height = height;
-		this.board = new int[width][height];
+		this.rows = new long[height];
+		this.cols = new long[width];
+		this.walls = new long[height];
+	}
+
+
+	// makes the cell (x,y) a wall, it must be free
+	void putWall(int x, int y) {
+		if (!isFree(x, y))
+			throw new Error("the cell (" + x + "," + y + ") is not free");
+		rows[y] |= 1L << x;
+		cols[x] |= 1L << y;
+		walls[y] |= 1L << x;
+	}
+
+	boolean isWall(int x, int y) {
+		return (walls[y] & (1L << x)) != 0;
+	}
+
+	// bit x is set if (x,y) is a wall
+	long wallRow(int y) {
+		return walls[y];
 	}
 	
 	
 	/**
 	 * puts the car on the parking: the corresponding board cells
-	 * will be set to the value car.id
+	 * will be marked as occupied
 	 * @param car: the cells it occupies are already defined by its attributes 
 	 * x,y,size and isHorizontal. Must verify that they are free before
 	 * calling this function, otherwise an error is thrown
 	 */
 	boolean putCar(Car car) {
-		var carCells = car.getOccupiedCells();
-		for (var cell : carCells) {
-			if (!isFree(cell.x, cell.y))
-				throw new Error("the destination parking place is not free");
-			board[cell.x][cell.y] = car.id;
+		int orientation = (car.isHorizontal? Car.HORIZONTAL : Car.VERTICAL);
+		if (!isFree(car.x, car.y, car.size, orientation))
+			throw new Error("the destination parking place is not free");
+		if (car.isHorizontal) {
+			rows[car.y] |= segment(car.x, car.size);
+			for (int dx = 0; dx < car.size; dx++)
+				cols[car.x + dx] |= 1L << car.y;
+		} else {
+			cols[car.x] |= segment(car.y, car.size);
+			for (int dy = 0; dy < car.size; dy++)
+				rows[car.y + dy] |= 1L << car.x;
 		}
 		return true;
 	}
 	
-	// Removes the car from board: set all it cells to 0
+	// Removes the car from board: set all it cells to free
 	void removeCar(Car car) {
-		var carCells = car.getOccupiedCells();
-		for (var cell: carCells)
-			board[cell.x][cell.y] = 0;
-	}
-	
-	/**
-	 * @return: -1 if (x,y) is not an available place (out of bounds),
-	 * 0 if it is free,
-	 * carId if the car with id=carId is on (x,y)
-	 */
-	int getCellOccupier(int x, int y) {
-		if (x < 0 || x >= width || y < 0 || y >= height)
-			return -1;
-		return board[x][y];
-			
+		if (car.isHorizontal) {
+			rows[car.y] &= ~segment(car.x, car.size);
+			for (int dx = 0; dx < car.size; dx++)
+				cols[car.x + dx] &= ~(1L << car.y);
+		} else {
+			cols[car.x] &= ~segment(car.y, car.size);
+			for (int dy = 0; dy < car.size; dy++)
+				rows[car.y + dy] &= ~(1L << car.x);
+		}
 	}
 	
 
 	// returns true if (x,y) is free and not out of bounds, false otherwise
 	boolean isFree(int x, int y) {
-		return (getCellOccupier(x, y) == 0);
+		if (x < 0 || x >= width || y < 0 || y >= height)
+			return false;
+		return (rows[y] & (1L << x)) == 0;
 	}
 	
 	// checks if all the cells moving from (x,y) in "orientation" 
 	// by "size" steps are free and not out of bounds
 	boolean isFree(int x, int y, int size, int orientation) {
+		if (size <= 0)
+			return true;
 		if (orientation == Car.HORIZONTAL) {
-			for (int dx = 0; dx < size; dx++)
-				if (!isFree(x + dx, y))
-					return false;
+			if (x < 0 || x + size > width || y < 0 || y >= height)
+				return false;
+			return (rows[y] & segment(x, size)) == 0;
 		} else {
-			for (int dy = 0; dy < size; dy++)
-				if (!isFree(x, y + dy))
-					return false;
+			if (x < 0 || x >= width || y < 0 || y + size > height)
+				return false;
+			return (cols[x] & segment(y, size)) == 0;
 		}
-		return true;
+	}
+
+
+	// number of free cells between the car and the previous obstacle
+	// (car, wall or parking border) in its lane, i.e. how far it can slide back
+	int freeCellsBefore(Car car) {
+		long lane = (car.isHorizontal? rows[car.y] : cols[car.x]);
+		return freeCellsBefore(lane, car.getVariableCoordinate());
+	}
+
+	// number of free cells between the car and the next obstacle
+	// (car, wall or parking border) in its lane, i.e. how far it can slide forward
+	int freeCellsAfter(Car car) {
+		long lane = (car.isHorizontal? rows[car.y] : cols[car.x]);
+		int laneLength = (car.isHorizontal? width : height);
+		return freeCellsAfter(lane, car.getVariableCoordinate() + car.size, laneLength);
+	}
+
+
+	// number of free cells before the cell "start" in the bitboard "lane"
+	static int freeCellsBefore(long lane, int start) {
+		long before = lane & ((1L << start) - 1);
+		if (before == 0)
+			return start;
+		return start - (64 - Long.numberOfLeadingZeros(before));
+	}
+
+	// number of free cells from the cell "end" in the bitboard "lane" of length laneLength
+	static int freeCellsAfter(long lane, int end, int laneLength) {
+		if (end >= laneLength)
+			return 0;
+		long after = lane >>> end;
+		if (after == 0)
+			return laneLength - end;
+		return Long.numberOfTrailingZeros(after);
+	}
+
+
+	// the mask of "size" consecutive bits starting at bit "start"
+	static long segment(int start, int size) {
+		return (-1L >>> (64 - size)) << start;
 	}
 	
 	// testing
 	void showBoard() {
 		for (int y = 0; y < height; y++) {
 			for (int x = 0; x < width; x++)
-				System.out.print(board[x][y] + ",");
+				System.out.print((isFree(x, y)? 0 : 1) + ",");
 			System.out.println("");
 		}
 		System.out.println("");
@@ -1,3 +1,5 @@
+import java.awt.BorderLayout;
+
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
@@ -6,7 +8,10 @@ public class Program {
 	public static void main(String[] args) {
 		// Create the puzzle
 		//------------------
-		var puzzle = easyPuzzle();
+		// (or the name of a puzzle given as argument: java Program hardest)
+		var puzzle = (args.length > 0? namedPuzzle(args[0]) : easyPuzzle());
+		if (puzzle == null)
+			throw new Error("unknown puzzle " + args[0] + ", expected easy, medium, hard or hardest");
 		//var puzzle = mediumPuzzle();
 		//var puzzle = hardPuzzle();
 		//var puzzle = hardestPuzzle();
@@ -16,9 +21,10 @@ public class Program {
 		// Create the animator
 		//--------------------
 		// the second argument is the waiting time between animation frames,
-		// make it bigger to slow down the backtracking animation 
+		// make it bigger to slow down the backtracking animation (the speed can
+		// also be changed, and the animation paused or moved, with the controls)
 		var animatedSolver = new AnimatedSolverBFS(puzzle, 3);
-		createFrame(animatedSolver);
+		createFrame(animatedSolver, animatedSolver.createControls());
 		// show the initial configuration for 1 second
 		animatedSolver.wait(1000);
 		
@@ -26,22 +32,28 @@ public class Program {
 		
 		// Solve the puzzle (with or without backtracking animation)
 		//----------------------------------------------------------
-		// the puzzle can bes solved using one of the two options
+		// the puzzle can bes solved using one of the three options
 		// - SolverBFS.solve(puzzle) to return directly the solution
-		// - animatedSolver.solve() to show the backtracking animation
-		// both use the same solving algorithm and return the list of moves to solve the 
-		// puzzle, and by the end of their execution the puzzle is in its initial state
+		// - new SolverParentBFS().solve(puzzle), faster and without modifying the puzzle
+		// - animatedSolver.solve() to show the backtracking animation: the search runs
+		//   at full speed, then its trace is animated while the program continues
+		// all return an optimal list of moves to solve the puzzle (null if it cannot be
+		// solved), and by the end of their execution the puzzle is in its initial state
 		
 		//var winningMoves = SolverBFS.solve(puzzle);
+		//var winningMoves = new SolverParentBFS().solve(puzzle);
 	    var winningMoves = animatedSolver.solve();
+	    if (winningMoves == null) {
+	    	System.out.println("The puzzle cannot be solved");
+	    	return;
+	    }
 	    System.out.println("The optimal number of moves to solve the puzzle is " + winningMoves.size());
 	    
 	    
 	    
 	    // Animated solution
 	    //------------------
-	    // wait 2 second before showing the animated solution
-	    animatedSolver.wait(2000);
+	    // shown after the end of the backtracking animation
 	    animatedSolver.playMoves(winningMoves);
 	}
 	
@@ -49,9 +61,16 @@ public class Program {
 	
 	// create a frame to the put the animatedSolver in
 	public static void createFrame(JPanel anim) {
+		createFrame(anim, null);
+	}
+	
+	// same, with the controls of the animation below it
+	public static void createFrame(JPanel anim, JPanel controls) {
 		JFrame frame = new JFrame("Rectangles");
 	    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 	    frame.add(anim);
+	    if (controls != null)
+	    	frame.add(controls, BorderLayout.SOUTH);
 	    frame.pack();
 	    frame.setLocationRelativeTo(null);
 	    frame.setVisible(true);
@@ -61,6 +80,17 @@ public class Program {
 	
 	// Some puzzle configurations
 	//---------------------------
+	// the puzzle of its name: easy, medium, hard or hardest, null for another name
+	public static RushHour namedPuzzle(String name) {
+		switch (name) {
+		case "easy": return easyPuzzle();
+		case "medium": return mediumPuzzle();
+		case "hard": return hardPuzzle();
+		case "hardest": return hardestPuzzle();
+		default: return null;
+		}
+	}
+	
 	// easy: optimal solution in 6 moves
 	public static RushHour easyPuzzle() {
 		var puzzle = new RushHour(6,6);
@@ -0,0 +1,215 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary file of puzzles with fixed-width records, read by memory mapping:
+ * ------------------------------------------------------------------------
+ * - header (8 bytes): the int MAGIC, the version byte, the byte maxCars, 2 unused bytes
+ * - then one record per puzzle of recordSize(maxCars) bytes: width, height, number
+ *   of cars, exit (RushHour.EXIT_RIGHT...), then maxCars slots of 4 bytes x, y, size,
+ *   flags: the cars in the order of their ids (flags VERTICAL_FLAG | RED_FLAG), then the
+ *   walls as horizontal runs of "size" cells (flags WALL_FLAG), then empty slots of size 0.
+ *   The files of version 1 had no walls and an unused byte 0 (EXIT_RIGHT) for the exit,
+ *   so they are read the same way.
+ * The n-th puzzle is at a known offset, so get(n) reads only its own record, and
+ * opening a file of a million puzzles does not parse anything.
+ * Usage: java PuzzleDatabase puzzles.txt puzzles.db [maxCars] converts a file in the
+ * format of PuzzleFormat, java PuzzleDatabase puzzles.db n prints the puzzle n.
+ */
+public class PuzzleDatabase implements AutoCloseable {
+	static final int MAGIC = 0x52484442; // "RHDB"
+	static final byte VERSION = 2;
+	static final int HEADER_SIZE = 8;
+	static final int CAR_SIZE = 4;
+	static final int VERTICAL_FLAG = 1;
+	static final int RED_FLAG = 2;
+	static final int WALL_FLAG = 4;
+
+	private final FileChannel channel;
+	private final int maxCars;
+	private final int recordSize;
+	private final int size;
+	// the file is mapped in segments of less than 2 GB, containing whole records
+	private final MappedByteBuffer[] segments;
+	private final int recordsPerSegment;
+
+
+	// maps the database file in memory
+	public PuzzleDatabase(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		var header = ByteBuffer.allocate(HEADER_SIZE);
+		channel.read(header, 0);
+		header.flip();
+		if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || !isVersion(header.get()))
+			throw new IOException("not a puzzle database: " + path);
+		maxCars = header.get();
+		recordSize = recordSize(maxCars);
+		size = (int) ((channel.size() - HEADER_SIZE) / recordSize);
+		recordsPerSegment = Integer.MAX_VALUE / recordSize;
+		segments = new MappedByteBuffer[(size + recordsPerSegment - 1) / recordsPerSegment];
+		for (int i = 0; i < segments.length; i++) {
+			long start = HEADER_SIZE + (long) i * recordsPerSegment * recordSize;
+			long length = (long) Math.min(recordsPerSegment, size - i * recordsPerSegment) * recordSize;
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+		}
+	}
+
+
+	// number of puzzles in the database
+	public int size() {
+		return size;
+	}
+
+
+	// the n-th puzzle of the database (starting from 0), reading only its record
+	public RushHour get(int n) {
+		if (n < 0 || n >= size)
+			throw new Error("no puzzle " + n + " in a database of " + size + " puzzles");
+		var segment = segments[n / recordsPerSegment];
+		int offset = (n % recordsPerSegment) * recordSize;
+		var puzzle = new RushHour(segment.get(offset), segment.get(offset + 1));
+		int numCars = segment.get(offset + 2);
+		puzzle.setExit(segment.get(offset + 3)); // before the red car
+		for (int i = 0; i < maxCars; i++) {
+			int slot = offset + CAR_SIZE * (i + 1);
+			int size = segment.get(slot + 2);
+			int flags = segment.get(slot + 3);
+			if (i < numCars)
+				puzzle.addCar(segment.get(slot), segment.get(slot + 1), size,
+						((flags & VERTICAL_FLAG) != 0? Car.VERTICAL : Car.HORIZONTAL), (flags & RED_FLAG) != 0);
+			else if ((flags & WALL_FLAG) != 0) {
+				for (int dx = 0; dx < size; dx++)
+					puzzle.addWall(segment.get(slot) + dx, segment.get(slot + 1));
+			}
+			else
+				break;
+		}
+		return puzzle;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+
+	static int recordSize(int maxCars) {
+		return CAR_SIZE * (maxCars + 1);
+	}
+
+	// the files of version 1 are read as files of version 2 without walls
+	private static boolean isVersion(byte version) {
+		return version == 1 || version == VERSION;
+	}
+
+
+
+	// Writes a database file, puzzle by puzzle
+	public static class Writer implements AutoCloseable {
+		private final FileChannel channel;
+		private final int maxCars;
+		private final ByteBuffer buffer;
+
+		public Writer(Path path, int maxCars) throws IOException {
+			if (maxCars < 1 || maxCars > Byte.MAX_VALUE)
+				throw new Error("maxCars must be between 1 and " + Byte.MAX_VALUE);
+			this.maxCars = maxCars;
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			buffer = ByteBuffer.allocate(Math.max(1 << 16, recordSize(maxCars)));
+			buffer.putInt(MAGIC).put(VERSION).put((byte) maxCars).putShort((short) 0);
+		}
+
+		// appends a puzzle, an error is thrown if its cars and runs of walls need more than maxCars slots
+		public void add(RushHour puzzle) throws IOException {
+			int numCars = puzzle.getNumCars();
+			int numSlots = numCars + wallRuns(puzzle);
+			if (numSlots > maxCars)
+				throw new Error("the puzzle has " + numCars + " cars and " + (numSlots - numCars)
+						+ " runs of walls, the database accepts " + maxCars);
+			if (buffer.remaining() < recordSize(maxCars))
+				flush();
+			int start = buffer.position();
+			buffer.put((byte) puzzle.parking.width).put((byte) puzzle.parking.height).put((byte) numCars)
+					.put((byte) puzzle.getExit());
+			for (int carId = 1; carId < numCars + 1; carId++) {
+				var car = puzzle.cars[carId];
+				int flags = (car.isHorizontal? 0 : VERTICAL_FLAG) | (carId == 1? RED_FLAG : 0);
+				buffer.put((byte) car.x).put((byte) car.y).put((byte) car.size).put((byte) flags);
+			}
+			for (int y = 0; y < puzzle.parking.height; y++) {
+				long walls = puzzle.parking.wallRow(y);
+				while (walls != 0) {
+					int x = Long.numberOfTrailingZeros(walls);
+					int size = Long.numberOfTrailingZeros(~(walls >>> x));
+					buffer.put((byte) x).put((byte) y).put((byte) size).put((byte) WALL_FLAG);
+					walls &= ~Parking.segment(x, size);
+				}
+			}
+			// unused slots
+			while (buffer.position() < start + recordSize(maxCars))
+				buffer.put((byte) 0);
+		}
+
+		// number of horizontal runs of walls of the puzzle
+		private static int wallRuns(RushHour puzzle) {
+			int runs = 0;
+			for (int y = 0; y < puzzle.parking.height; y++) {
+				long walls = puzzle.parking.wallRow(y);
+				runs += Long.bitCount(walls & ~(walls << 1)); // first cell of each run
+			}
+			return runs;
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+			channel.close();
+		}
+	}
+
+
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("usage: java PuzzleDatabase puzzles.txt puzzles.db [maxCars]");
+			System.out.println("       java PuzzleDatabase puzzles.db n");
+			return;
+		}
+		if (args[0].endsWith(".db")) {
+			try (var database = new PuzzleDatabase(Path.of(args[0]))) {
+				var puzzle = database.get(Integer.parseInt(args[1]));
+				System.out.println(PuzzleFormat.format(puzzle));
+				puzzle.showParking();
+			}
+			return;
+		}
+		int maxCars = (args.length > 2? Integer.parseInt(args[2]) : 18);
+		int count = 0;
+		try (var input = new BufferedReader(new FileReader(args[0]));
+				var writer = new Writer(Path.of(args[1]), maxCars)) {
+			String line;
+			while ((line = input.readLine()) != null) {
+				if (line.isBlank() || line.startsWith("#"))
+					continue;
+				writer.add(PuzzleFormat.parse(line));
+				count++;
+			}
+		}
+		System.out.println(count + " puzzles written to " + args[1]);
+	}
+}
@@ -0,0 +1,119 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One-line text format of the puzzles, as in the database of
+ * https://www.michaelfogleman.com/rush/ :
+ * ------------------------------------------------------------
+ * - the cells of a square board are listed row by row (36 characters for 6x6),
+ * - 'o' or '.' is a free cell, 'x' a wall, 'A' is the red car, and each other car is
+ *   written with its own letter 'B', 'C'...,
+ * - the lines of the database look like "51 GBBoLoGHIoLMGHIAAMCCCKoMooJKDDEEJFFo 4780"
+ *   (optimal number of moves, board, size of the cluster), parse() takes the board
+ *   out of such lines.
+ * The cars are added to the puzzle in the order of their letters, so the car
+ * written with the letter L has the id L - 'A' + 1 when no letter is skipped.
+ * The exit is always on the right of the red car's row (see RushHour.setExit()).
+ */
+public class PuzzleFormat {
+	static final char EMPTY = 'o';
+	static final char RED = 'A';
+	static final char WALL = 'x';
+
+
+	// returns the puzzle of the line, an error is thrown if the line has no valid board
+	public static RushHour parse(String line) {
+		String board = null;
+		for (var token: line.trim().split("\\s+"))
+			if (isBoard(token))
+				board = token;
+		if (board == null)
+			throw new Error("no board found in line: " + line);
+		int side = (int) Math.round(Math.sqrt(board.length()));
+		var puzzle = new RushHour(side, side);
+		if (board.indexOf(RED) == -1)
+			throw new Error("no red car in board: " + board);
+		for (int i = board.indexOf(WALL); i != -1; i = board.indexOf(WALL, i + 1))
+			puzzle.addWall(i % side, i / side);
+		// the cars are added in the order of their letters, so that their ids follow the letters
+		for (char c = RED; c <= 'Z'; c++) {
+			int i = board.indexOf(c);
+			if (i == -1)
+				continue;
+			int x = i % side;
+			int y = i / side;
+			boolean horizontal = (x + 1 < side && board.charAt(i + 1) == c);
+			int step = (horizontal? 1 : side);
+			int size = 1;
+			while (i + size * step < board.length() && board.charAt(i + size * step) == c
+					&& (!horizontal || x + size < side))
+				size++;
+			if (size < 2)
+				throw new Error("the car " + c + " occupies a single cell: " + board);
+			if (!puzzle.addCar(x, y, size, (horizontal? Car.HORIZONTAL : Car.VERTICAL), c == RED))
+				throw new Error("invalid board: " + board);
+		}
+		return puzzle;
+	}
+
+
+	// the board of the puzzle in the one-line format (the car with id k has the letter 'A' + k - 1)
+	public static String format(RushHour puzzle) {
+		if (puzzle.getExit() != RushHour.EXIT_RIGHT)
+			throw new Error("the one-line format only has exits on the right");
+		var width = puzzle.parking.width;
+		var board = new char[width * puzzle.parking.height];
+		Arrays.fill(board, EMPTY);
+		for (int y = 0; y < puzzle.parking.height; y++)
+			for (int x = 0; x < width; x++)
+				if (puzzle.parking.isWall(x, y))
+					board[y * width + x] = WALL;
+		for (var car: puzzle.cars)
+			if (car != null)
+				for (var cell: car.getOccupiedCells())
+					board[cell.y * width + cell.x] = letter(car.id);
+		return new String(board);
+	}
+
+
+	// the moves written as "A+2 B-1 ...": letter of the car, then the signed shift
+	public static String formatMoves(List<CarMove> moves) {
+		var text = new StringBuilder();
+		for (var carMove: moves) {
+			if (text.length() > 0)
+				text.append(' ');
+			text.append(letter(carMove.carId)).append(carMove.dxy > 0? "+" : "").append(carMove.dxy);
+		}
+		return text.toString();
+	}
+
+	// reverse of formatMoves()
+	public static List<CarMove> parseMoves(String text) {
+		var moves = new ArrayList<CarMove>();
+		for (var token: text.trim().split("\\s+"))
+			if (!token.isEmpty())
+				moves.add(new CarMove(token.charAt(0) - RED + 1, Integer.parseInt(token.substring(1).replace("+", ""))));
+		return moves;
+	}
+
+
+	static char letter(int carId) {
+		if (carId > 26)
+			throw new Error("the one-line format is limited to 26 cars");
+		return (char) (RED + carId - 1);
+	}
+
+	// a board is a square number of characters, letters or free cells
+	private static boolean isBoard(String token) {
+		int side = (int) Math.round(Math.sqrt(token.length()));
+		if (side < 2 || side * side != token.length())
+			return false;
+		for (int i = 0; i < token.length(); i++) {
+			char c = token.charAt(i);
+			if (c != EMPTY && c != '.' && c != WALL && (c < 'A' || c > 'Z'))
+				return false;
+		}
+		return true;
+	}
+}
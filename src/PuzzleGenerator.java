@@ -0,0 +1,307 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generator of hard puzzles, by enumeration of all the layouts of cars on a board:
+ * --------------------------------------------------------------------------------
+ * - the layouts are enumerated lane by lane (rows, then columns), each lane taking one
+ *   of the ways of placing cars of size 2 or 3 in it. The red car (size 2) is alone in
+ *   the row height/2 - 1, as in SolverReport.randomPuzzle(). The ids of the cars follow
+ *   the enumeration order (red car, then rows, then columns, and by position in a lane),
+ *   and moves never change this order, so all the configurations of a cluster (the
+ *   configurations reachable from each other) have the same cars with the same ids,
+ * - each cluster is processed once, from its configuration with the smallest key (see
+ *   RushHour.longRepresentation()): a layout in which a car can move back (decreasing the
+ *   key) is skipped at once, and the others are checked by a BFS of their cluster that
+ *   stops as soon as it finds a smaller key,
+ * - for each cluster, a ClusterOracle gives its hardest configuration (the longest optimal
+ *   solution), kept if it has at least minMoves moves,
+ * - the enumeration is split in tasks (the ways of filling the first two rows) run by a pool
+ *   of threads, and only the current cluster of each thread is kept in memory.
+ * The top-bottom mirrors of the puzzles are not generated: the red car is always in the row
+ * height/2 - 1, and a mirrored puzzle is a different puzzle unless this is the middle row.
+ * The puzzles are written as lines "moves board clusterSize", as in the database of
+ * https://www.michaelfogleman.com/rush/ (see PuzzleFormat).
+ * Usage: java PuzzleGenerator output.txt [minMoves] [minCars] [maxCars] [size] [threads]
+ */
+public class PuzzleGenerator {
+	private final int width;
+	private final int height;
+	private final int redRow;
+	private final int minCars;
+	private final int maxCars;
+	private final int minMoves;
+	// the ways of placing cars in a row, in a column, and in the red car's row
+	private final ArrayList<Lane> rowLanes;
+	private final ArrayList<Lane> colLanes;
+	private final ArrayList<Lane> redLanes = new ArrayList<Lane>();
+
+	private final LongAdder layouts = new LongAdder();
+	private final LongAdder checkedLayouts = new LongAdder();
+	private final LongAdder clusters = new LongAdder();
+	private final LongAdder puzzles = new LongAdder();
+
+
+	// minCars and maxCars count the red car
+	public PuzzleGenerator(int width, int height, int minCars, int maxCars, int minMoves) {
+		this.width = width;
+		this.height = height;
+		this.redRow = height / 2 - 1;
+		this.minCars = minCars;
+		this.maxCars = Math.min(maxCars, 26); // limit of the one-line format
+		this.minMoves = minMoves;
+		rowLanes = lanes(width);
+		colLanes = lanes(height);
+		// the red row only contains the red car
+		for (int x = 0; x + 2 <= width; x++)
+			redLanes.add(new Lane(new int[] {x}, new int[] {2}));
+	}
+
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.out.println("usage: java PuzzleGenerator output.txt [minMoves] [minCars] [maxCars] [size] [threads]");
+			return;
+		}
+		int minMoves = (args.length > 1? Integer.parseInt(args[1]) : 20);
+		int minCars = (args.length > 2? Integer.parseInt(args[2]) : 1);
+		int maxCars = (args.length > 3? Integer.parseInt(args[3]) : 26);
+		int size = (args.length > 4? Integer.parseInt(args[4]) : 6);
+		int threads = (args.length > 5? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors());
+		long start = System.nanoTime();
+		var generator = new PuzzleGenerator(size, size, minCars, maxCars, minMoves);
+		try (var output = new BufferedWriter(new FileWriter(args[0]))) {
+			generator.generate(output, threads);
+		}
+		System.out.printf("%d layouts, %d checked by BFS, %d clusters, %d puzzles kept in %.1f s%n",
+				generator.layouts.sum(), generator.checkedLayouts.sum(), generator.clusters.sum(),
+				generator.puzzles.sum(), (System.nanoTime() - start) / 1e9);
+	}
+
+
+	/**
+	 * Enumerates all the clusters and writes their hardest configuration to output if it
+	 * has at least minMoves moves (in no particular order)
+	 * @return the number of puzzles written
+	 */
+	public long generate(Writer output, int threads) throws IOException, InterruptedException {
+		var pool = Executors.newFixedThreadPool(threads);
+		var tasks = new ArrayList<Future<?>>();
+		for (var first: lanesOf(0))
+			for (var second: lanesOf(1))
+				tasks.add(pool.submit(() -> {
+					var layout = new Layout();
+					if (first.starts.length + second.starts.length <= maxCars
+							&& layout.push(this, 0, first) && layout.push(this, 1, second))
+						enumerate(layout, 2, output);
+					return null;
+				}));
+		pool.shutdown();
+		try {
+			for (var task: tasks)
+				task.get();
+		} catch (ExecutionException e) {
+			throw new Error("generation failed", e.getCause());
+		}
+		output.flush();
+		return puzzles.sum();
+	}
+
+
+	// fills the lanes from "lane" (rows 0..height-1, then columns 0..width-1) in all possible ways
+	private void enumerate(Layout layout, int lane, Writer output) throws IOException {
+		if (lane == height + width) {
+			if (layout.numCars >= minCars)
+				process(layout, output);
+			return;
+		}
+		for (var carsInLane: lanesOf(lane)) {
+			if (layout.numCars + carsInLane.starts.length > maxCars)
+				continue;
+			if (layout.push(this, lane, carsInLane)) {
+				enumerate(layout, lane + 1, output);
+				layout.pop(carsInLane);
+			}
+		}
+	}
+
+
+	// processes the cluster of the layout, if the layout is its configuration with the smallest key
+	private void process(Layout layout, Writer output) throws IOException {
+		layouts.increment();
+		if (layout.canMoveBack())
+			return;
+		checkedLayouts.increment();
+		var puzzle = layout.toRushHour(width, height);
+		if (!hasSmallestKey(puzzle))
+			return;
+		clusters.increment();
+		var oracle = new ClusterOracle(puzzle);
+		if (oracle.maxDistance() < minMoves)
+			return;
+		puzzles.increment();
+		var line = oracle.maxDistance() + " " + PuzzleFormat.format(oracle.hardestPuzzle()) + " " + oracle.size();
+		synchronized (output) {
+			output.write(line);
+			output.write('\n');
+		}
+	}
+
+
+	// BFS of the cluster of the puzzle, stopping as soon as a configuration has a smaller key
+	static boolean hasSmallestKey(RushHour puzzle) {
+		var geometry = new PuzzleGeometry(puzzle);
+		var store = new StateStore();
+		var positions = new int[geometry.numCars + 1];
+		var rows = new long[geometry.height];
+		var cols = new long[geometry.width];
+		var moves = new int[geometry.maxMoves];
+		long start = puzzle.longRepresentation();
+		store.add(start, -1, 0);
+		for (int index = 0; index < store.size(); index++) {
+			long key = store.key(index);
+			geometry.decode(key, positions);
+			geometry.fillBoard(positions, rows, cols);
+			int numMoves = geometry.possibleMoves(positions, rows, cols, -1, moves);
+			for (int i = 0; i < numMoves; i++) {
+				long childKey = geometry.play(key, moves[i]);
+				if (childKey < start)
+					return false;
+				store.add(childKey, index, moves[i]);
+			}
+		}
+		return true;
+	}
+
+
+
+	// the ways of placing cars in the lane number "lane"
+	private ArrayList<Lane> lanesOf(int lane) {
+		if (lane == redRow)
+			return redLanes;
+		return (lane < height? rowLanes : colLanes);
+	}
+
+	// all the ways of placing cars of size 2 or 3 in a lane of the given length
+	private static ArrayList<Lane> lanes(int length) {
+		var lanes = new ArrayList<Lane>();
+		addLanes(lanes, length, 0, new int[0], new int[0]);
+		return lanes;
+	}
+
+	private static void addLanes(ArrayList<Lane> lanes, int length, int from, int[] starts, int[] sizes) {
+		lanes.add(new Lane(starts, sizes));
+		for (int start = from; start + 2 <= length; start++)
+			for (int size = 2; size <= 3 && start + size <= length; size++) {
+				var newStarts = Arrays.copyOf(starts, starts.length + 1);
+				var newSizes = Arrays.copyOf(sizes, sizes.length + 1);
+				newStarts[starts.length] = start;
+				newSizes[sizes.length] = size;
+				addLanes(lanes, length, start + size, newStarts, newSizes);
+			}
+	}
+
+
+
+	// cars placed in a lane: their starting coordinates and sizes, in increasing order
+	private static class Lane {
+		final int[] starts;
+		final int[] sizes;
+		final long mask; // the occupied cells of the lane
+
+		Lane(int[] starts, int[] sizes) {
+			this.starts = starts;
+			this.sizes = sizes;
+			long mask = 0;
+			for (int i = 0; i < starts.length; i++)
+				mask |= Parking.segment(starts[i], sizes[i]);
+			this.mask = mask;
+		}
+	}
+
+
+	// the layout being enumerated by a task: the cars placed so far and the bitboards
+	private static class Layout {
+		int numCars = 0;
+		final int[] x = new int[27];
+		final int[] y = new int[27];
+		final int[] size = new int[27];
+		final boolean[] horizontal = new boolean[27];
+		// bit y of cols[x] is set if the cell (x,y) is occupied, as in Parking
+		final long[] cols = new long[64];
+
+		// adds the cars of the lane, returns false (without adding them) if they overlap other cars
+		boolean push(PuzzleGenerator generator, int lane, Lane carsInLane) {
+			boolean isRow = (lane < generator.height);
+			if (isRow) {
+				for (int i = 0; i < carsInLane.starts.length; i++)
+					add(carsInLane.starts[i], lane, carsInLane.sizes[i], true);
+			} else {
+				int col = lane - generator.height;
+				if ((cols[col] & carsInLane.mask) != 0)
+					return false;
+				for (int i = 0; i < carsInLane.starts.length; i++)
+					add(col, carsInLane.starts[i], carsInLane.sizes[i], false);
+			}
+			return true;
+		}
+
+		private void add(int carX, int carY, int carSize, boolean isHorizontal) {
+			x[numCars] = carX;
+			y[numCars] = carY;
+			size[numCars] = carSize;
+			horizontal[numCars++] = isHorizontal;
+			if (isHorizontal)
+				for (int dx = 0; dx < carSize; dx++)
+					cols[carX + dx] |= 1L << carY;
+			else
+				cols[carX] |= Parking.segment(carY, carSize);
+		}
+
+		// removes the cars of the last lane pushed
+		void pop(Lane carsInLane) {
+			for (int i = 0; i < carsInLane.starts.length; i++) {
+				int car = --numCars;
+				if (horizontal[car])
+					for (int dx = 0; dx < size[car]; dx++)
+						cols[x[car] + dx] &= ~(1L << y[car]);
+				else
+					cols[x[car]] &= ~Parking.segment(y[car], size[car]);
+			}
+		}
+
+		// true if a car can move back, to a smaller key
+		boolean canMoveBack() {
+			for (int car = 0; car < numCars; car++) {
+				if (horizontal[car]) {
+					if (x[car] > 0 && (cols[x[car] - 1] & (1L << y[car])) == 0)
+						return true;
+				} else if (y[car] > 0 && (cols[x[car]] & (1L << (y[car] - 1))) == 0)
+					return true;
+			}
+			return false;
+		}
+
+		// the puzzle with the red car first, then the other cars in the order of the layout
+		RushHour toRushHour(int width, int height) {
+			var puzzle = new RushHour(width, height);
+			int red = -1;
+			for (int car = 0; car < numCars && red == -1; car++)
+				if (horizontal[car] && y[car] == height / 2 - 1)
+					red = car;
+			puzzle.addCar(x[red], y[red], size[red], Car.HORIZONTAL, true);
+			for (int car = 0; car < numCars; car++)
+				if (car != red)
+					puzzle.addCar(x[car], y[car], size[car], (horizontal[car]? Car.HORIZONTAL : Car.VERTICAL));
+			return puzzle;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+import java.util.Arrays;
+
+/**
+ * Read-only description of the cars of a puzzle (size, orientation, lane),
+ * of its walls and of its exit, allowing to work on configurations without a RushHour object:
+ * -------------------------------------------------------------------------------------------
+ * - a configuration is given by its key (see RushHour.longRepresentation()),
+ *   or by the array "positions" of the variable coordinates of the cars,
+ *   indexed by car id (positions[0] is not used),
+ * - the occupied cells of a configuration are given by the bitboards rows and
+ *   cols, with the same layout as in Parking (the walls are occupied cells),
+ * - on large boards with many cars, the configurations do not fit in a long: the
+ *   cars are then split in keyWords groups, each one coded in its own long with the
+ *   same mixed radix as longRepresentation(), and the keys are arrays of keyWords
+ *   longs (methods with a long[] key). When keyWords is 1, both kinds of keys are equal.
+ * All the arrays are owned by the caller, so that several threads can explore
+ * configurations of the same puzzle with their own buffers.
+ */
+public class PuzzleGeometry {
+	final int width;
+	final int height;
+	final int numCars;
+	// indexed by car id
+	final int[] size;
+	final boolean[] isHorizontal;
+	final int[] lane;        // the fixed coordinate of the car: y if horizontal, x if vertical
+	final int[] laneLength;  // width if horizontal, height if vertical
+	final long[] multiplier; // weight of the car position in its word of the key
+	final int[] word;        // index of the long of the key coding the car position
+	final int keyWords;      // number of longs of a key
+	// the cars coded in the word w of a key are firstCar[w],...,firstCar[w + 1] - 1
+	private final int[] firstCar;
+	final long stateSpaceSize; // same as RushHour.stateSpaceSize(), -1 if keyWords > 1
+	final int maxMoves;      // upper bound on the number of possible moves in a configuration
+	final long[] wallRows;   // the walls, with the layout of rows and cols
+	final long[] wallCols;
+	final int exit;          // see RushHour.setExit()
+	final boolean exitForward;
+
+
+	public PuzzleGeometry(RushHour puzzle) {
+		width = puzzle.parking.width;
+		height = puzzle.parking.height;
+		numCars = puzzle.getNumCars();
+		size = new int[numCars + 1];
+		isHorizontal = new boolean[numCars + 1];
+		lane = new int[numCars + 1];
+		laneLength = new int[numCars + 1];
+		multiplier = new long[numCars + 1];
+		word = new int[numCars + 1];
+		var starts = new int[numCars + 2];
+		int words = 0;
+		long power = 1;
+		int moves = 0;
+		for (int carId = 1; carId < numCars + 1; carId++) {
+			var car = puzzle.cars[carId];
+			size[carId] = car.size;
+			isHorizontal[carId] = car.isHorizontal;
+			lane[carId] = (car.isHorizontal? car.y : car.x);
+			laneLength[carId] = (car.isHorizontal? width : height);
+			int positions = laneLength[carId] - car.size + 1;
+			// start a new word when the positions of the car do not fit in the current one
+			if (carId == 1 || power > Long.MAX_VALUE / positions) {
+				starts[words++] = carId;
+				power = 1;
+			}
+			word[carId] = words - 1;
+			multiplier[carId] = power;
+			power *= positions;
+			moves += positions - 1;
+		}
+		keyWords = words;
+		starts[words] = numCars + 1;
+		firstCar = Arrays.copyOf(starts, words + 1);
+		// with a single word, the keys are the same as puzzle.longRepresentation()
+		stateSpaceSize = (keyWords == 1? power : -1);
+		maxMoves = moves;
+		wallRows = new long[height];
+		wallCols = new long[width];
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				if (puzzle.parking.isWall(x, y)) {
+					wallRows[y] |= 1L << x;
+					wallCols[x] |= 1L << y;
+				}
+		exit = puzzle.getExit();
+		exitForward = puzzle.exitForward();
+	}
+
+
+	// the key of the configuration given by positions (keyWords must be 1, as for the
+	// long keys of decode() and play())
+	long encode(int[] positions) {
+		long key = 0;
+		for (int carId = 1; carId < numCars + 1; carId++)
+			key += multiplier[carId] * positions[carId];
+		return key;
+	}
+
+	// fills positions with the configuration of the given key
+	void decode(long key, int[] positions) {
+		for (int carId = numCars; carId > 0; carId--) {
+			positions[carId] = (int) (key / multiplier[carId]);
+			key -= positions[carId] * multiplier[carId];
+		}
+	}
+
+	// the key of the configuration obtained by playing the packed move
+	// in the configuration of the given key
+	long play(long key, int packedMove) {
+		return key + CarMove.dxy(packedMove) * multiplier[CarMove.carId(packedMove)];
+	}
+
+
+	// same as encode(), decode() and play() for keys of keyWords longs:
+
+	// writes in key the key of the configuration of the puzzle (which matches the geometry)
+	void encode(RushHour puzzle, long[] key) {
+		Arrays.fill(key, 0, keyWords, 0);
+		for (int carId = 1; carId < numCars + 1; carId++)
+			key[word[carId]] += multiplier[carId] * puzzle.cars[carId].getVariableCoordinate();
+	}
+
+	void encode(int[] positions, long[] key) {
+		Arrays.fill(key, 0, keyWords, 0);
+		for (int carId = 1; carId < numCars + 1; carId++)
+			key[word[carId]] += multiplier[carId] * positions[carId];
+	}
+
+	// the key is read in keys[offset],...,keys[offset + keyWords - 1]
+	void decode(long[] keys, int offset, int[] positions) {
+		for (int w = 0; w < keyWords; w++) {
+			long key = keys[offset + w];
+			for (int carId = firstCar[w + 1] - 1; carId >= firstCar[w]; carId--) {
+				positions[carId] = (int) (key / multiplier[carId]);
+				key -= positions[carId] * multiplier[carId];
+			}
+		}
+	}
+
+	// writes in child the key of the configuration obtained by playing the packed move
+	void play(long[] key, int packedMove, long[] child) {
+		int carId = CarMove.carId(packedMove);
+		System.arraycopy(key, 0, child, 0, keyWords);
+		child[word[carId]] += CarMove.dxy(packedMove) * multiplier[carId];
+	}
+
+
+	// fills the bitboards rows (of length height) and cols (of length width)
+	// with the walls and the cells occupied in the configuration given by positions
+	void fillBoard(int[] positions, long[] rows, long[] cols) {
+		System.arraycopy(wallRows, 0, rows, 0, height);
+		System.arraycopy(wallCols, 0, cols, 0, width);
+		for (int carId = 1; carId < numCars + 1; carId++) {
+			int start = positions[carId];
+			if (isHorizontal[carId]) {
+				rows[lane[carId]] |= Parking.segment(start, size[carId]);
+				for (int dx = 0; dx < size[carId]; dx++)
+					cols[start + dx] |= 1L << lane[carId];
+			} else {
+				cols[lane[carId]] |= Parking.segment(start, size[carId]);
+				for (int dy = 0; dy < size[carId]; dy++)
+					rows[start + dy] |= 1L << lane[carId];
+			}
+		}
+	}
+
+
+	/**
+	 * Writes the possible moves of all the cars except ignoreCarId in the buffer
+	 * "moves" (of length at least maxMoves) as packed moves (see CarMove.pack),
+	 * in the same order as RushHour.getPossibleMoves()
+	 * @return the number of moves written
+	 */
+	int possibleMoves(int[] positions, long[] rows, long[] cols, int ignoreCarId, int[] moves) {
+		int numMoves = 0;
+		for (int carId = 1; carId < numCars + 1; carId++) {
+			if (carId == ignoreCarId)
+				continue;
+			long carLane = (isHorizontal[carId]? rows[lane[carId]] : cols[lane[carId]]);
+			int before = Parking.freeCellsBefore(carLane, positions[carId]);
+			for (int dxy = 1; dxy <= before; dxy++)
+				moves[numMoves++] = CarMove.pack(carId, -dxy);
+			int after = Parking.freeCellsAfter(carLane, positions[carId] + size[carId], laneLength[carId]);
+			for (int dxy = 1; dxy <= after; dxy++)
+				moves[numMoves++] = CarMove.pack(carId, dxy);
+		}
+		return numMoves;
+	}
+
+
+	// same as RushHour.won() for the configuration given by positions, rows and cols
+	boolean won(int[] positions, long[] rows, long[] cols) {
+		return pathFree(isHorizontal[1]? rows[lane[1]] : cols[lane[1]], positions[1]);
+	}
+
+	// same as won() for the configuration obtained by playing packedMove,
+	// without modifying positions, rows and cols
+	boolean wonAfter(int[] positions, long[] rows, long[] cols, int packedMove) {
+		int carId = CarMove.carId(packedMove);
+		int dxy = CarMove.dxy(packedMove);
+		int redLane = lane[1];
+		long path = (isHorizontal[1]? rows[redLane] : cols[redLane]);
+		int redStart = positions[1];
+		if (carId == 1)
+			redStart += dxy;
+		else if (isHorizontal[carId] == isHorizontal[1]) {
+			if (lane[carId] == redLane) {
+				path &= ~Parking.segment(positions[carId], size[carId]);
+				path |= Parking.segment(positions[carId] + dxy, size[carId]);
+			}
+		} else {
+			int newStart = positions[carId] + dxy;
+			if (positions[carId] <= redLane && redLane < positions[carId] + size[carId])
+				path &= ~(1L << lane[carId]);
+			if (newStart <= redLane && redLane < newStart + size[carId])
+				path |= 1L << lane[carId];
+		}
+		return pathFree(path, redStart);
+	}
+
+	// true if the cells between the red car at redStart and the exit are free
+	// in the bitboard of its lane
+	private boolean pathFree(long redLane, int redStart) {
+		if (!exitForward)
+			return (redLane & ((1L << redStart) - 1)) == 0;
+		int redEnd = redStart + size[1];
+		return redEnd >= laneLength[1] || (redLane >>> redEnd) == 0;
+	}
+
+	// a new puzzle with the same walls, exit and cars as the geometry, in the configuration given by positions
+	RushHour toRushHour(int[] positions) {
+		var puzzle = new RushHour(width, height);
+		puzzle.setExit(exit);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				if ((wallRows[y] & (1L << x)) != 0)
+					puzzle.addWall(x, y);
+		for (int carId = 1; carId < numCars + 1; carId++) {
+			int x = (isHorizontal[carId]? positions[carId] : lane[carId]);
+			int y = (isHorizontal[carId]? lane[carId] : positions[carId]);
+			puzzle.addCar(x, y, size[carId], (isHorizontal[carId]? Car.HORIZONTAL : Car.VERTICAL), carId == 1);
+		}
+		return puzzle;
+	}
+
+	// true if the puzzle has the same parking (walls and exit) and cars (same ids, sizes,
+	// orientations and lanes) as the geometry, so that its configurations have keys in this geometry
+	boolean matches(RushHour puzzle) {
+		if (puzzle.parking.width != width || puzzle.parking.height != height || puzzle.getNumCars() != numCars
+				|| puzzle.getExit() != exit)
+			return false;
+		for (int y = 0; y < height; y++)
+			if (puzzle.parking.wallRow(y) != wallRows[y])
+				return false;
+		for (int carId = 1; carId < numCars + 1; carId++) {
+			var car = puzzle.cars[carId];
+			if (car.size != size[carId] || car.isHorizontal != isHorizontal[carId]
+					|| (car.isHorizontal? car.y : car.x) != lane[carId])
+				return false;
+		}
+		return true;
+	}
+
+	// same as RushHour.distToExit() for the configuration given by positions
+	int distToExit(int[] positions) {
+		return (exitForward? laneLength[1] - (positions[1] + size[1]) : -positions[1]);
+	}
+}
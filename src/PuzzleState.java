@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+/**
+ * Immutable configuration of a puzzle:
+ * ------------------------------------
+ * - a configuration is its key in a PuzzleGeometry (see PuzzleGeometry.keyWords), and
+ *   the geometry (sizes, orientations and lanes of the cars, walls, exit) is shared,
+ *   read-only, by all the configurations of the puzzle,
+ * - apply() returns the configuration obtained by a move without modifying this one, so
+ *   any number of threads can explore the configurations of a puzzle without locking,
+ *   and a configuration can be kept (in a set, a map, a queue...) without copying the puzzle,
+ * - two configurations are equal if they have the same geometry and the same key.
+ * A configuration takes 32 bytes when its key is a single long (24 more on large boards
+ * with keys of several longs).
+ */
+public final class PuzzleState {
+	final PuzzleGeometry geometry;
+	private final long key;     // the key when geometry.keyWords is 1
+	private final long[] words; // the key otherwise, null for a single long
+
+
+	private PuzzleState(PuzzleGeometry geometry, long key, long[] words) {
+		this.geometry = geometry;
+		this.key = key;
+		this.words = words;
+	}
+
+
+	// the current configuration of the puzzle, in a new geometry
+	public static PuzzleState of(RushHour puzzle) {
+		return of(new PuzzleGeometry(puzzle), puzzle);
+	}
+
+	// the current configuration of the puzzle, which must match the geometry (see PuzzleGeometry.matches())
+	public static PuzzleState of(PuzzleGeometry geometry, RushHour puzzle) {
+		if (!geometry.matches(puzzle))
+			throw new Error("the puzzle does not have the cars of the geometry");
+		if (geometry.keyWords == 1)
+			return new PuzzleState(geometry, puzzle.longRepresentation(), null);
+		var words = new long[geometry.keyWords];
+		geometry.encode(puzzle, words);
+		return new PuzzleState(geometry, 0, words);
+	}
+
+
+	// the configuration obtained by playing the packed move (see CarMove.pack), which
+	// must be one of possibleMoves(): it is not checked
+	public PuzzleState apply(int packedMove) {
+		if (words == null)
+			return new PuzzleState(geometry, geometry.play(key, packedMove), null);
+		var child = new long[words.length];
+		geometry.play(words, packedMove, child);
+		return new PuzzleState(geometry, 0, child);
+	}
+
+	public PuzzleState apply(CarMove carMove) {
+		return apply(CarMove.pack(carMove.carId, carMove.dxy));
+	}
+
+
+	// the possible moves packed in ints, in the same order as RushHour.getPossibleMoves()
+	public int[] possibleMoves() {
+		var positions = positions();
+		var rows = new long[geometry.height];
+		var cols = new long[geometry.width];
+		geometry.fillBoard(positions, rows, cols);
+		var moves = new int[geometry.maxMoves];
+		int numMoves = geometry.possibleMoves(positions, rows, cols, -1, moves);
+		return Arrays.copyOf(moves, numMoves);
+	}
+
+	// same as RushHour.won()
+	public boolean won() {
+		var positions = positions();
+		var rows = new long[geometry.height];
+		var cols = new long[geometry.width];
+		geometry.fillBoard(positions, rows, cols);
+		return geometry.won(positions, rows, cols);
+	}
+
+	// variable coordinates of the cars, indexed by car id
+	public int[] positions() {
+		var positions = new int[geometry.numCars + 1];
+		if (words == null)
+			geometry.decode(key, positions);
+		else
+			geometry.decode(words, 0, positions);
+		return positions;
+	}
+
+	// a new puzzle in this configuration
+	public RushHour toRushHour() {
+		return geometry.toRushHour(positions());
+	}
+
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof PuzzleState))
+			return false;
+		var state = (PuzzleState) other;
+		return geometry == state.geometry && key == state.key && Arrays.equals(words, state.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return (words == null? StateSet.hash(key) : Arrays.hashCode(words));
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(positions());
+	}
+}
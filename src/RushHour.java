@@ -1,13 +1,32 @@
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 
 public class RushHour {
+	// the side of the parking where the exit is, in the lane of the red car: the red car
+	// must be horizontal for an exit on the left or the right, vertical for the top or the bottom
+	public static final int EXIT_RIGHT = 0;
+	public static final int EXIT_LEFT = 1;
+	public static final int EXIT_BOTTOM = 2;
+	public static final int EXIT_TOP = 3;
+
 	Parking parking;
 	private int maxPosition;
+	private int exit = EXIT_RIGHT;
 	
 	private boolean redCarCreated = false;
 	private int numCars = 1;
-	HashMap<Integer, Car> cars = new HashMap<Integer, Car>();
+	// cars[id] is the car with this id (cars[0] is not used, cars[1] is the red car)
+	Car[] cars = new Car[8];
+	// maximal number of possible moves in any configuration
+	private int maxMoves = 0;
+	// product of the numbers of positions of the cars, -1 if it does not fit in a long
+	private long stateSpaceSize = 1;
+	// the key of the current configuration (see longRepresentation()) and its Zobrist hash
+	// (see zobristHash()), both updated in O(1) by each move: multipliers[id] is the
+	// weight of the position of the car in the key
+	private long key = 0;
+	private long hash = 0;
+	private long[] multipliers = new long[8];
 	
 	
 	public RushHour(int width, int height) {
@@ -22,17 +41,94 @@ public class RushHour {
 	// - It is used in the solver to keep track of the visited configurations,
 	//   it has the advantage of giving a light representation (int) and thus
 	//   consume few memory resources
+	// - It overflows once the number of configurations exceeds 2^31 (about 12 cars
+	//   on a 6x6 parking), the solvers use longRepresentation() instead
 	int integerRepresentation() {
 		int representation = 0;
 		int power = 1;
 		for (int carId = 1; carId < numCars + 1; carId ++) {
-			representation += power * cars.get(carId).getVariableCoordinate();
+			representation += power * cars[carId].getVariableCoordinate();
 			power *= maxPosition;
 		}
 		return representation;
 	}
 	
 	
+	// - Same injection as integerRepresentation() but in a long, and in base
+	//   (number of positions of the car in its lane) for each car instead of
+	//   max(width, height), so the keys lie in [0, stateSpaceSize())
+	// - It is used by the solvers, together with StateSet, to keep track of the
+	//   visited configurations
+	// - It is updated by each move (a shift of the car's multiplier), so reading
+	//   it costs nothing
+	// - An error is thrown if the configurations do not fit in a long (large boards
+	//   with many cars), see PuzzleGeometry.keyWords for keys of several longs
+	long longRepresentation() {
+		if (stateSpaceSize < 0)
+			throw new Error("too many cars to represent a configuration in a long");
+		return key;
+	}
+	
+	// - 64-bit Zobrist hash of the configuration: the xor of zobrist(id, position) over
+	//   the cars, so a move only changes the terms of the car that moved
+	// - Unlike longRepresentation(), it exists for any number of cars, but different
+	//   configurations can have the same hash: it is meant for hash tables that also
+	//   compare the exact keys
+	long zobristHash() {
+		return hash;
+	}
+	
+	// the pseudo-random term of the car at a position in the Zobrist hash (splitmix64 finalizer)
+	static long zobrist(int carId, int position) {
+		long z = (((long) carId << 32) | position) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	// recomputes the multipliers of the cars, the key and the hash, after adding a car
+	// (the multiplier of a car depends on the cars of smaller ids)
+	private void updateKey() {
+		if (multipliers.length < cars.length)
+			multipliers = new long[cars.length];
+		long power = 1;
+		key = hash = 0;
+		for (int carId = 1; carId < numCars + 1; carId ++) {
+			var car = cars[carId];
+			if (car == null)
+				continue;
+			multipliers[carId] = power;
+			key += power * car.getVariableCoordinate();
+			hash ^= zobrist(carId, car.getVariableCoordinate());
+			power *= numPositions(car);
+		}
+	}
+	
+	// number of possible configurations of the cars, (ignoring collisions), i.e.
+	// an upper bound on longRepresentation(). An error is thrown if it does not fit in a long
+	long stateSpaceSize() {
+		if (stateSpaceSize < 0)
+			throw new Error("too many cars to represent a configuration in a long");
+		return stateSpaceSize;
+	}
+	
+	// number of positions a car can take in its lane
+	private int numPositions(Car car) {
+		return (car.isHorizontal? parking.width : parking.height) - car.size + 1;
+	}
+	
+	
+	// number of cars, their ids are 1,...,numCars
+	int getNumCars() {
+		return numCars;
+	}
+	
+	// maximal number of moves written by getPossibleMoves(ignoreCarId, moves)
+	public int maxMoves() {
+		return maxMoves;
+	}
+	
+	
 	// Give the id the next car to create
 	// We can only have one red car, it has id = 1. 
 	private int nextCarId(boolean isRed) {
@@ -65,13 +161,24 @@ public class RushHour {
 				") is not available or out of bounds");
 			return false;
 		}
+		if (isRed && (orientation == Car.HORIZONTAL) != (exit == EXIT_RIGHT || exit == EXIT_LEFT))
+			throw new Error("the red car must be in the direction of the exit (see setExit())");
 		// Create car object
 		int carId = nextCarId(isRed);
 		Car car = new Car(carId, x, y, size, orientation);
 		// put it on the parking
 		parking.putCar(car);
-		// add to the cars' hashmap
-		cars.put(carId, car);
+		// add to the cars' array
+		if (carId >= cars.length)
+			cars = Arrays.copyOf(cars, 2 * carId);
+		cars[carId] = car;
+		int positions = numPositions(car);
+		maxMoves += positions - 1;
+		if (stateSpaceSize > 0 && stateSpaceSize <= Long.MAX_VALUE / positions)
+			stateSpaceSize *= positions;
+		else
+			stateSpaceSize = -1;
+		updateKey();
 		return true;
 	}
 	
@@ -80,27 +187,61 @@ public class RushHour {
 		return addCar(x, y, size, orientation, false);
 	}
 	
+	// makes the cell (x,y) a wall, which no car can cross. Returns false if it is not free
+	public boolean addWall(int x, int y) {
+		if (!parking.isFree(x, y))
+			return false;
+		parking.putWall(x, y);
+		return true;
+	}
+	
+	// sets the side of the exit (EXIT_RIGHT by default): it must be called before
+	// adding the red car for an exit on the top or the bottom
+	public void setExit(int exit) {
+		if (exit < EXIT_RIGHT || exit > EXIT_TOP)
+			throw new Error("invalid exit " + exit);
+		if (redCarCreated && cars[1].isHorizontal != (exit == EXIT_RIGHT || exit == EXIT_LEFT))
+			throw new Error("the red car must be in the direction of the exit");
+		this.exit = exit;
+	}
+	
+	public int getExit() {
+		return exit;
+	}
+	
+	// true if the red car leaves by the end of its lane (exit on the right or the bottom)
+	boolean exitForward() {
+		return exit == EXIT_RIGHT || exit == EXIT_BOTTOM;
+	}
+	
+	// a new puzzle with the same walls, exit and cars (and ids) in the same configuration
+	public RushHour copy() {
+		var copy = new RushHour(parking.width, parking.height);
+		copy.exit = exit;
+		for (int y = 0; y < parking.height; y++)
+			for (int x = 0; x < parking.width; x++)
+				if (parking.isWall(x, y))
+					copy.addWall(x, y);
+		for (int carId = 1; carId < numCars + 1; carId++) {
+			var car = cars[carId];
+			if (car != null)
+				copy.addCar(car.x, car.y, car.size, (car.isHorizontal? Car.HORIZONTAL : Car.VERTICAL), carId == 1);
+		}
+		return copy;
+	}
+	
 	
-	// return all the possible moves of a car
+	// return all the possible moves of a car: the free cells before and after
+	// the car in its lane are found with bitboard operations in the parking
 	public ArrayList<CarMove> getCarPossibleMoves(int carId) {
-		var car = cars.get(carId);
+		var car = cars[carId];
 		var carMoves = new ArrayList<CarMove>();
-		if (car.isHorizontal) {
-			int dx = -1;
-			while (parking.isFree(car.x + dx, car.y))
-				carMoves.add(new CarMove(car.id, dx--));
-			dx = 1;
-			while (parking.isFree(car.x + car.size - 1 + dx, car.y))
-				carMoves.add(new CarMove(car.id, dx++));
-		}
-		else {
-			int dy = -1;
-			while (parking.isFree(car.x, car.y + dy))
-				carMoves.add(new CarMove(car.id, dy--));
-			dy = 1;
-			while (parking.isFree(car.x, car.y + car.size - 1 + dy))
-				carMoves.add(new CarMove(car.id, dy++));
-		}
+		int before = parking.freeCellsBefore(car);
+		for (int dxy = 1; dxy <= before; dxy++)
+			carMoves.add(new CarMove(car.id, -dxy));
+		int after = parking.freeCellsAfter(car);
+		for (int dxy = 1; dxy <= after; dxy++)
+			carMoves.add(new CarMove(car.id, dxy));
 		return carMoves;
 	}
 	
@@ -114,8 +255,8 @@ public class RushHour {
 	// the car with (id == ignoreCarId)
 	public ArrayList<CarMove> getPossibleMoves(int ignoreCarId) {
 		var allMoves = new ArrayList<CarMove>();
-		for (var carId: cars.keySet()) {
-			if (carId != ignoreCarId) {
+		for (int carId = 1; carId < numCars + 1; carId++) {
+			if (carId != ignoreCarId && cars[carId] != null) {
 				var carMoves = getCarPossibleMoves(carId);
 				allMoves.addAll(carMoves);
 			}
@@ -123,43 +264,103 @@ public class RushHour {
 		return allMoves;		
 	}
 	
+	/**
+	 * Same moves as getPossibleMoves(ignoreCarId), in the same order, but packed in ints
+	 * (see CarMove.pack) and written in the buffer "moves", so nothing is allocated
+	 * @param moves: buffer of at least maxMoves() ints, owned by the caller
+	 * @return the number of moves written in the buffer
+	 */
+	public int getPossibleMoves(int ignoreCarId, int[] moves) {
+		int numMoves = 0;
+		for (int carId = 1; carId < numCars + 1; carId++) {
+			var car = cars[carId];
+			if (carId == ignoreCarId || car == null)
+				continue;
+			int before = parking.freeCellsBefore(car);
+			for (int dxy = 1; dxy <= before; dxy++)
+				moves[numMoves++] = CarMove.pack(carId, -dxy);
+			int after = parking.freeCellsAfter(car);
+			for (int dxy = 1; dxy <= after; dxy++)
+				moves[numMoves++] = CarMove.pack(carId, dxy);
+		}
+		return numMoves;
+	}
+	
 	
 	// "move" must be an available move, otherwise an error is thrown in parking.putCar(car).
 	public void move(CarMove carMove) {
-		var car = cars.get(carMove.carId);
+		move(carMove.carId, carMove.dxy);
+	}
+	
+	// do the opposite move of carMove
+	public void cancelMove(CarMove carMove) {
+		move(carMove.carId, - carMove.dxy);
+	}
+	
+	// same as move(CarMove) and cancelMove(CarMove) for a packed move (see CarMove.pack)
+	public void move(int packedMove) {
+		move(CarMove.carId(packedMove), CarMove.dxy(packedMove));
+	}
+	
+	public void cancelMove(int packedMove) {
+		move(CarMove.carId(packedMove), - CarMove.dxy(packedMove));
+	}
+	
+	private void move(int carId, int dxy) {
+		var car = cars[carId];
+		int position = car.getVariableCoordinate();
 		// remove car from parking
 		parking.removeCar(car);
 		// modify car coordinates
 		if (car.isHorizontal)
-			car.x += carMove.dxy;
+			car.x += dxy;
 		else
-			car.y += carMove.dxy;
+			car.y += dxy;
 		// put it back in the parking
 		parking.putCar(car);
-	}
-	
-	// do the opposite move of carMove
-	public void cancelMove(CarMove carMove) {
-		move(new CarMove(carMove.carId, - carMove.dxy));
+		key += dxy * multipliers[carId];
+		hash ^= zobrist(carId, position) ^ zobrist(carId, position + dxy);
 	}
 	
 	
-	// returns the distance between the redCr and the exit cell
+	// returns the distance between the redCr and the exit cell, as the shift of
+	// the final move: negative for an exit on the left or the top
 	public int distToExit() {
-		Car redCar = cars.get(1);
-		return parking.width - (redCar.x + redCar.size);
+		Car redCar = cars[1];
+		switch (exit) {
+		case EXIT_LEFT: return -redCar.x;
+		case EXIT_TOP: return -redCar.y;
+		case EXIT_BOTTOM: return parking.height - (redCar.y + redCar.size);
+		default: return parking.width - (redCar.x + redCar.size);
+		}
 	}
 	
 	// returns true if the game can be won in one move
 	public boolean won() {
-		Car redCar = cars.get(1);
-		return parking.isFree(redCar.x + redCar.size, redCar.y, distToExit(), Car.HORIZONTAL);
+		Car redCar = cars[1];
+		if (exitForward())
+			return parking.freeCellsAfter(redCar) == distToExit();
+		return parking.freeCellsBefore(redCar) == -distToExit();
 	}
 	
 	
-	// for testing
+	// for testing (walls are shown as -1)
 	public void showParking() {
-		parking.showBoard();
+		var board = new int[parking.width][parking.height];
+		for (int y = 0; y < parking.height; y++)
+			for (int x = 0; x < parking.width; x++)
+				if (parking.isWall(x, y))
+					board[x][y] = -1;
+		for (int carId = 1; carId < numCars + 1; carId++)
+			if (cars[carId] != null)
+				for (var cell: cars[carId].getOccupiedCells())
+					board[cell.x][cell.y] = carId;
+		for (int y = 0; y < parking.height; y++) {
+			for (int x = 0; x < parking.width; x++)
+				System.out.print(board[x][y] + ",");
+			System.out.println("");
+		}
+		System.out.println("");
 	}
 }
 
@@ -174,4 +375,22 @@ class CarMove{
 		this.carId = carId;
 		this.dxy = dxy;
 	}
+	
+	// a move can also be packed in an int: (carId << 8) | (dxy & 0xFF),
+	// which requires -128 <= dxy < 128
+	static int pack(int carId, int dxy) {
+		return (carId << 8) | (dxy & 0xFF);
+	}
+	
+	static int carId(int packedMove) {
+		return packedMove >>> 8;
+	}
+	
+	static int dxy(int packedMove) {
+		return (byte) packedMove;
+	}
+	
+	static CarMove unpack(int packedMove) {
+		return new CarMove(carId(packedMove), dxy(packedMove));
+	}
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Trace of the backtracking search of SolverBFS, recorded for animating it afterwards:
+ * ------------------------------------------------------------------------------------
+ * - record() runs SolverBFS.solve() at full speed, on a copy of the puzzle, and returns
+ *   its result together with the trace,
+ * - the trace is the list of the moves shown by the animation, packed in ints (see
+ *   CarMove.pack): the moves executed and canceled to go from a configuration of the
+ *   search tree to the next one, then the winning moves and their cancellation,
+ * - each move is relative to the configuration shown before it. When a move is canceled
+ *   and the next move is executed by the same car, the cancellation is not shown and merged
+ *   with it, so that the car does not go back and forth.
+ * Playing all the moves of the trace from the initial configuration of the puzzle shows
+ * the whole search, and comes back to the initial configuration, also when the puzzle
+ * cannot be solved or the search is cut off by the limits.
+ */
+public class SearchTrace {
+	private int[] moves = new int[1024];
+	private int size = 0;
+	// variable coordinates of the cars in the configuration shown after the last move of the trace
+	private final int[] shown;
+	private SolveResult result;
+
+
+	private SearchTrace(RushHour puzzle) {
+		shown = new int[puzzle.getNumCars() + 1];
+		for (int carId = 1; carId < shown.length; carId++)
+			shown[carId] = puzzle.cars[carId].getVariableCoordinate();
+	}
+
+
+	// same as record(puzzle, limits) without limits
+	public static SearchTrace record(RushHour puzzle) {
+		return record(puzzle, SolveLimits.NONE);
+	}
+
+	/**
+	 * Solves the puzzle with SolverBFS.solve(), stopped by the limits, recording the trace,
+	 * the puzzle itself is not modified
+	 */
+	public static SearchTrace record(RushHour puzzle, SolveLimits limits) {
+		puzzle = puzzle.copy();
+		var trace = new SearchTrace(puzzle);
+		trace.result = SolverBFS.solve(puzzle, null, limits, trace);
+		return trace;
+	}
+
+
+	// adds to the trace the move of the car from its shown position to its position in the puzzle
+	void show(RushHour puzzle, int carId) {
+		int position = puzzle.cars[carId].getVariableCoordinate();
+		if (position == shown[carId])
+			return;
+		if (size == moves.length)
+			moves = Arrays.copyOf(moves, 2 * size);
+		moves[size++] = CarMove.pack(carId, position - shown[carId]);
+		shown[carId] = position;
+	}
+
+
+	// number of moves in the trace
+	public int size() {
+		return size;
+	}
+
+	// the i-th move of the trace, packed (see CarMove.pack)
+	public int move(int i) {
+		return moves[i];
+	}
+
+	// the same list of moves as SolverBFS.solve(puzzle), null if the puzzle cannot be solved
+	// or the search was cut off
+	public LinkedList<CarMove> getWinningMoves() {
+		return result.winningMoves;
+	}
+
+	// status and winning moves of the search
+	public SolveResult getResult() {
+		return result;
+	}
+}
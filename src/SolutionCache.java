@@ -0,0 +1,223 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of the solutions of the puzzles, in front of a Solver:
+ * ------------------------------------------------------------
+ * - the key of a puzzle is canonical: the size of the parking, its exit and walls, and the
+ *   list of its cars (orientation, lane, position, size, red or not) sorted, without the car
+ *   ids, so the same configuration gives the same key whatever the order in which the cars
+ *   were added,
+ * - a puzzle and its top-bottom mirror have the same key (when the exit is on the left or
+ *   the right): the key is the smallest of the keys of both boards, and the solutions are
+ *   stored for the canonical board (cars numbered in the sorted order, vertical moves
+ *   reversed for mirrored boards),
+ * - the entries are evicted in least recently used order when the total weight
+ *   (approximate size in bytes of the keys and solutions) exceeds maxWeight.
+ * All the methods are thread safe, the solving itself is done outside of the lock.
+ */
+public class SolutionCache {
+	private final long maxWeight;
+	private long weight = 0;
+	// access ordered, the first entry is the least recently used
+	private final LinkedHashMap<Key, int[]> entries = new LinkedHashMap<Key, int[]>(16, 0.75f, true);
+	// value of the entries of puzzles that cannot be solved
+	private static final int[] NO_SOLUTION = new int[0];
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+
+	// maxWeight: approximate maximal memory used by the entries, in bytes
+	public SolutionCache(long maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+
+
+	/**
+	 * Returns the cached solution of the current configuration of the puzzle,
+	 * or solves it with the solver and caches the result
+	 * @return the same as solver.solve(puzzle), null if the puzzle cannot be solved
+	 */
+	public LinkedList<CarMove> solve(RushHour puzzle, Solver solver) {
+		var key = new Key(puzzle);
+		int[] canonicalMoves;
+		synchronized (entries) {
+			canonicalMoves = entries.get(key);
+		}
+		if (canonicalMoves != null) {
+			hits.increment();
+			return (canonicalMoves == NO_SOLUTION? null : key.toPuzzleMoves(canonicalMoves));
+		}
+		misses.increment();
+		var winningMoves = solver.solve(puzzle);
+		canonicalMoves = key.toCanonicalMoves(winningMoves);
+		synchronized (entries) {
+			var previous = entries.put(key, canonicalMoves);
+			if (previous != null) // another thread solved the same puzzle meanwhile
+				weight -= weight(key, previous);
+			weight += weight(key, canonicalMoves);
+			// remove the least recently used entries
+			while (weight > maxWeight && !entries.isEmpty()) {
+				var eldest = entries.keySet().iterator().next();
+				weight -= weight(eldest, entries.remove(eldest));
+				evictions.increment();
+			}
+		}
+		return winningMoves;
+	}
+
+
+	// a solver using the cache in front of the given solver
+	public Solver cached(Solver solver) {
+		return puzzle -> solve(puzzle, solver);
+	}
+
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long weight() {
+		synchronized (entries) {
+			return weight;
+		}
+	}
+
+
+	// approximate size of an entry in bytes
+	private static long weight(Key key, int[] canonicalMoves) {
+		return 64 + key.cars.length * 8 + key.walls.length * 8 + canonicalMoves.length * 4;
+	}
+
+
+
+	// canonical key of a configuration, and the correspondence between its cars and the puzzle's ones
+	static class Key {
+		final int width, height, exit;
+		// the rows of walls (see Parking.wallRow()), in the mirrored order if mirrored
+		final long[] walls;
+		// the cars sorted, each one coded in an int by code()
+		final int[] cars;
+		// carIds[i] is the id in the puzzle of the i-th car in the sorted order
+		final int[] carIds;
+		final boolean mirrored;
+		final int hash;
+
+		Key(RushHour puzzle) {
+			width = puzzle.parking.width;
+			height = puzzle.parking.height;
+			exit = puzzle.getExit();
+			int numCars = puzzle.getNumCars();
+			var direct = new long[numCars];
+			var mirror = new long[numCars];
+			for (int carId = 1; carId < numCars + 1; carId++) {
+				var car = puzzle.cars[carId];
+				direct[carId - 1] = ((long) code(car, false) << 32) | carId;
+				mirror[carId - 1] = ((long) code(car, true) << 32) | carId;
+			}
+			Arrays.sort(direct);
+			Arrays.sort(mirror);
+			// the mirror of a board with an exit on the top or the bottom has its exit on the other side
+			mirrored = (exit == RushHour.EXIT_RIGHT || exit == RushHour.EXIT_LEFT) && compareCodes(mirror, direct) < 0;
+			walls = new long[height];
+			for (int y = 0; y < height; y++)
+				walls[mirrored? height - 1 - y : y] = puzzle.parking.wallRow(y);
+			var sorted = (mirrored? mirror : direct);
+			cars = new int[numCars];
+			carIds = new int[numCars];
+			for (int i = 0; i < numCars; i++) {
+				cars[i] = (int) (sorted[i] >>> 32);
+				carIds[i] = (int) sorted[i];
+			}
+			hash = 31 * (31 * (31 * (31 * width + height) + exit) + Arrays.hashCode(walls)) + Arrays.hashCode(cars);
+		}
+
+		// flags (red, vertical), lane, position and size of the car in a single int
+		private int code(Car car, boolean mirror) {
+			int lane = (car.isHorizontal? car.y : car.x);
+			int position = car.getVariableCoordinate();
+			if (mirror) {
+				if (car.isHorizontal)
+					lane = height - 1 - lane;
+				else
+					position = height - car.size - position;
+			}
+			int flags = (car.id == 1? 2 : 0) | (car.isHorizontal? 0 : 1);
+			return (flags << 24) | (lane << 16) | (position << 8) | car.size;
+		}
+
+		private static int compareCodes(long[] a, long[] b) {
+			for (int i = 0; i < a.length; i++) {
+				int c = Integer.compare((int) (a[i] >>> 32), (int) (b[i] >>> 32));
+				if (c != 0)
+					return c;
+			}
+			return 0;
+		}
+
+		// the moves of the puzzle packed with the indices of the cars in the sorted order
+		// (see CarMove.pack), NO_SOLUTION if there is no solution
+		int[] toCanonicalMoves(LinkedList<CarMove> winningMoves) {
+			if (winningMoves == null)
+				return NO_SOLUTION;
+			var index = new int[carIds.length + 1];
+			for (int i = 0; i < carIds.length; i++)
+				index[carIds[i]] = i;
+			var moves = new int[winningMoves.size()];
+			int m = 0;
+			for (var carMove: winningMoves) {
+				int i = index[carMove.carId];
+				moves[m++] = CarMove.pack(i, flip(i, carMove.dxy));
+			}
+			return moves;
+		}
+
+		// reverse of toCanonicalMoves()
+		LinkedList<CarMove> toPuzzleMoves(int[] canonicalMoves) {
+			var winningMoves = new LinkedList<CarMove>();
+			for (var move: canonicalMoves) {
+				int i = CarMove.carId(move);
+				winningMoves.add(new CarMove(carIds[i], flip(i, CarMove.dxy(move))));
+			}
+			return winningMoves;
+		}
+
+		// moves of vertical cars are reversed on a mirrored board
+		private int flip(int i, int dxy) {
+			boolean vertical = ((cars[i] >>> 24) & 1) != 0;
+			return (mirrored && vertical? -dxy : dxy);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key))
+				return false;
+			var key = (Key) other;
+			return width == key.width && height == key.height && exit == key.exit
+					&& Arrays.equals(walls, key.walls) && Arrays.equals(cars, key.cars);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,244 @@
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+
+/**
+ * Headless export of the animation of solutions, to an animated GIF or to numbered PNG files:
+ * -------------------------------------------------------------------------------------------
+ * - each move of the solution is shown in framesPerCell frames per cell, as in the animation
+ *   of AnimatedSolverBFS.playMoves(), drawn by a BoardPainter on a BufferedImage with the
+ *   palette of the painter (so GIF frames need no color quantization),
+ * - the frames are rendered in parallel by a pool of threads, and written in order through
+ *   ImageIO as soon as they are ready. At most WINDOW_PER_THREAD frames per thread are
+ *   waiting to be written, so the memory used does not depend on the length of the solution.
+ * No window is needed: it runs with java.awt.headless=true.
+ * Usage: java SolutionExporter puzzles.txt outputDirectory [gif|png] [cellSize] [threads]
+ * solves each puzzle of the file (format of PuzzleFormat) with SolverAStar, and writes
+ * puzzle-lineNumber.gif, or the directory puzzle-lineNumber of frame-00000.png files.
+ */
+public class SolutionExporter implements AutoCloseable {
+	private static final int WINDOW_PER_THREAD = 4;
+	// time during which the first and the last frames are shown, in hundredths of seconds
+	private static final int HOLD_DELAY = 100;
+
+	private final BoardPainter painter;
+	private final int framesPerCell;
+	private final int frameDelay; // in hundredths of seconds (GIF delay unit)
+	private final int threads;
+	private final ExecutorService pool;
+
+
+	// frameDelay: time between two frames in hundredths of seconds
+	public SolutionExporter(int cellSize, int framesPerCell, int frameDelay, int threads) {
+		this.painter = new BoardPainter(cellSize);
+		this.framesPerCell = framesPerCell;
+		this.frameDelay = frameDelay;
+		this.threads = threads;
+		this.pool = Executors.newFixedThreadPool(threads);
+	}
+
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("usage: java SolutionExporter puzzles.txt outputDirectory [gif|png] [cellSize] [threads]");
+			return;
+		}
+		System.setProperty("java.awt.headless", "true");
+		var output = Path.of(args[1]);
+		boolean gif = (args.length < 3 || args[2].equals("gif"));
+		int cellSize = (args.length > 3? Integer.parseInt(args[3]) : 50);
+		int threads = (args.length > 4? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors());
+		Files.createDirectories(output);
+		var solver = new SolverAStar();
+		int count = 0;
+		long start = System.nanoTime();
+		try (var input = new BufferedReader(new FileReader(args[0]));
+				var exporter = new SolutionExporter(cellSize, 10, 4, threads)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = input.readLine()) != null) {
+				lineNumber++;
+				if (line.isBlank() || line.startsWith("#"))
+					continue;
+				var puzzle = PuzzleFormat.parse(line);
+				var winningMoves = solver.solve(puzzle);
+				if (winningMoves == null) {
+					System.out.println("line " + lineNumber + ": no solution");
+					continue;
+				}
+				if (gif)
+					exporter.exportGif(puzzle, winningMoves, output.resolve("puzzle-" + lineNumber + ".gif"));
+				else
+					exporter.exportPngs(puzzle, winningMoves, output.resolve("puzzle-" + lineNumber));
+				count++;
+			}
+		}
+		System.out.printf("%d solutions exported in %.1f s%n", count, (System.nanoTime() - start) / 1e9);
+	}
+
+
+	// writes the animation of the moves, played from the current configuration of the puzzle, to a GIF file
+	public void exportGif(RushHour puzzle, List<CarMove> moves, Path file) throws IOException {
+		var writer = ImageIO.getImageWritersByFormatName("gif").next();
+		Files.deleteIfExists(file);
+		try (var output = ImageIO.createImageOutputStream(file.toFile())) {
+			writer.setOutput(output);
+			writer.prepareWriteSequence(null);
+			var frames = new Frames(puzzle, moves);
+			render(puzzle, frames, (i, image) -> {
+				int delay = (i == 0 || i == frames.size - 1? HOLD_DELAY : frameDelay);
+				writer.writeToSequence(new IIOImage(image, null, gifMetadata(writer, image, delay, i == 0)), null);
+			});
+			writer.endWriteSequence();
+		} finally {
+			writer.dispose();
+		}
+	}
+
+
+	// writes the frames of the animation to directory/frame-00000.png, frame-00001.png...
+	public void exportPngs(RushHour puzzle, List<CarMove> moves, Path directory) throws IOException {
+		Files.createDirectories(directory);
+		render(puzzle, new Frames(puzzle, moves), (i, image) ->
+			ImageIO.write(image, "png", directory.resolve(String.format("frame-%05d.png", i)).toFile()));
+	}
+
+
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+
+
+	// the frames of the animation of a list of moves
+	private class Frames {
+		final int size;
+		// frame i shows the move moveOf[i] (-1 for the last frame), advanced by progressOf[i] cells
+		final int[] moveOf;
+		final int[] progressOf; // in 1 / framesPerCell cells
+		// positions[m]: variable coordinates of the cars before the move m
+		final int[][] positions;
+		final int[] packedMoves;
+
+		Frames(RushHour puzzle, List<CarMove> moves) {
+			packedMoves = new int[moves.size()];
+			positions = new int[moves.size() + 1][];
+			positions[0] = BoardPainter.positions(puzzle);
+			int count = 1;
+			int m = 0;
+			for (var carMove: moves) {
+				packedMoves[m] = CarMove.pack(carMove.carId, carMove.dxy);
+				positions[m + 1] = positions[m].clone();
+				positions[m + 1][carMove.carId] += carMove.dxy;
+				count += Math.abs(carMove.dxy) * framesPerCell;
+				m++;
+			}
+			size = count;
+			moveOf = new int[size];
+			progressOf = new int[size];
+			int i = 0;
+			for (m = 0; m < packedMoves.length; m++)
+				for (int progress = 0; progress < Math.abs(CarMove.dxy(packedMoves[m])) * framesPerCell; progress++) {
+					moveOf[i] = m;
+					progressOf[i++] = progress;
+				}
+			moveOf[i] = -1;
+		}
+
+		// draws the frame i
+		BufferedImage draw(RushHour puzzle, int i) {
+			var image = new BufferedImage(painter.width(puzzle), painter.height(puzzle),
+					BufferedImage.TYPE_BYTE_INDEXED, BoardPainter.PALETTE);
+			var g2d = image.createGraphics();
+			int m = moveOf[i];
+			if (m == -1)
+				painter.paint(g2d, puzzle, positions[packedMoves.length], -1, 0);
+			else {
+				int move = packedMoves[m];
+				double shift = Math.signum(CarMove.dxy(move)) * progressOf[i] / (double) framesPerCell;
+				painter.paint(g2d, puzzle, positions[m], CarMove.carId(move), shift);
+			}
+			g2d.dispose();
+			return image;
+		}
+	}
+
+
+	// called with the frames in order
+	private interface FrameWriter {
+		void write(int i, BufferedImage image) throws IOException;
+	}
+
+	// renders the frames in parallel and writes them in order
+	private void render(RushHour puzzle, Frames frames, FrameWriter writer) throws IOException {
+		var pending = new ArrayDeque<Future<BufferedImage>>();
+		int next = 0;
+		try {
+			for (int written = 0; written < frames.size; written++) {
+				while (next < frames.size && pending.size() < WINDOW_PER_THREAD * threads) {
+					int i = next++;
+					pending.add(pool.submit(() -> frames.draw(puzzle, i)));
+				}
+				writer.write(written, pending.poll().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("export interrupted", e);
+		} catch (ExecutionException e) {
+			throw new Error("frame rendering failed", e.getCause());
+		} finally {
+			for (var future: pending)
+				future.cancel(false);
+		}
+	}
+
+
+	// metadata of a GIF frame: its delay, and for the first frame the looping extension
+	private static IIOMetadata gifMetadata(ImageWriter writer, BufferedImage image, int delay, boolean first) throws IOException {
+		var metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), null);
+		String format = metadata.getNativeMetadataFormatName();
+		var root = (IIOMetadataNode) metadata.getAsTree(format);
+		var control = child(root, "GraphicControlExtension");
+		control.setAttribute("disposalMethod", "none");
+		control.setAttribute("userInputFlag", "FALSE");
+		control.setAttribute("transparentColorFlag", "FALSE");
+		control.setAttribute("delayTime", String.valueOf(delay));
+		control.setAttribute("transparentColorIndex", "0");
+		if (first) {
+			var loop = new IIOMetadataNode("ApplicationExtension");
+			loop.setAttribute("applicationID", "NETSCAPE");
+			loop.setAttribute("authenticationCode", "2.0");
+			loop.setUserObject(new byte[] {1, 0, 0}); // loop forever
+			child(root, "ApplicationExtensions").appendChild(loop);
+		}
+		metadata.setFromTree(format, root);
+		return metadata;
+	}
+
+	// the child of the node with the given name, created if needed
+	private static IIOMetadataNode child(IIOMetadataNode node, String name) {
+		for (int i = 0; i < node.getLength(); i++)
+			if (node.item(i).getNodeName().equals(name))
+				return (IIOMetadataNode) node.item(i);
+		var child = new IIOMetadataNode(name);
+		node.appendChild(child);
+		return child;
+	}
+}
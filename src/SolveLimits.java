@@ -0,0 +1,64 @@
+/**
+ * Limits of the searches of the solvers (see Solver.solve(puzzle, limits)):
+ * -------------------------------------------------------------------------
+ * - a deadline, timeoutMillis after the creation of the limits, so the same limits
+ *   can be shared by all the searches done for one request,
+ * - a maximal number of configurations stored by the search,
+ * - a maximal memory in bytes, estimated from the tables of the search (StateStore,
+ *   StateSet...): the heap used by the rest of the program is not counted.
+ * The searches also stop when their thread is interrupted. They only call check()
+ * every CHECK_MASK + 1 expanded configurations, or when they store more than maxStates
+ * configurations, so checking the limits costs two tests per expansion. The number of
+ * configurations is compared to maxStates before each expansion, so a search can store
+ * up to the children of one expansion more than maxStates. parallel-bfs only checks the
+ * limits every CHECK_MASK + 1 expansions of each worker, and external-bfs counts the
+ * configurations of a depth once it is merged, so they can go further past the limit.
+ */
+public class SolveLimits {
+	// no limit, except thread interruption
+	public static final SolveLimits NONE = new SolveLimits(0, 0, 0);
+	// the limits are checked when (number of expanded configurations & CHECK_MASK) == 0
+	static final int CHECK_MASK = 1023;
+
+	private final long deadline; // in System.nanoTime() time
+	private final boolean hasDeadline;
+	final int maxStates;
+	private final long maxMemory;
+
+
+	// each limit is ignored if it is 0
+	public SolveLimits(long timeoutMillis, int maxStates, long maxMemory) {
+		if (timeoutMillis < 0 || maxStates < 0 || maxMemory < 0)
+			throw new Error("the limits must be positive, or 0 for no limit");
+		this.hasDeadline = (timeoutMillis > 0);
+		this.deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+		this.maxStates = (maxStates == 0? Integer.MAX_VALUE : maxStates);
+		this.maxMemory = (maxMemory == 0? Long.MAX_VALUE : maxMemory);
+	}
+
+
+	/**
+	 * thread: the thread running the search (the caller of solve(), not a worker thread)
+	 * states, memory: number of configurations and estimated bytes used by the search
+	 * @return the reason to stop the search, or null if it can go on
+	 */
+	SolveResult.Status check(Thread thread, int states, long memory) {
+		if (thread.isInterrupted())
+			return SolveResult.Status.INTERRUPTED;
+		if (hasDeadline && System.nanoTime() - deadline >= 0)
+			return SolveResult.Status.DEADLINE;
+		if (states > maxStates)
+			return SolveResult.Status.STATE_LIMIT;
+		if (memory > maxMemory)
+			return SolveResult.Status.MEMORY_LIMIT;
+		return null;
+	}
+
+
+	// remaining time before the deadline in milliseconds (Long.MAX_VALUE if none)
+	public long remainingMillis() {
+		if (!hasDeadline)
+			return Long.MAX_VALUE;
+		return Math.max(0, (deadline - System.nanoTime()) / 1_000_000);
+	}
+}
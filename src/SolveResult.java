@@ -0,0 +1,49 @@
+import java.util.LinkedList;
+
+/**
+ * Result of a search with limits (see Solver.solve(puzzle, limits)): its status,
+ * the winning moves if it found a solution, and the statistics of the search
+ * (up to the moment it stopped), null for the solvers that do not keep them.
+ */
+public class SolveResult {
+	public enum Status {
+		SOLVED,
+		UNSOLVABLE, // the search proved that the puzzle cannot be solved
+		// the search was cut off by a limit, or interrupted
+		DEADLINE,
+		STATE_LIMIT,
+		MEMORY_LIMIT,
+		INTERRUPTED;
+
+		public boolean isCutOff() {
+			return this != SOLVED && this != UNSOLVABLE;
+		}
+	}
+
+	public final Status status;
+	// the optimal solution if SOLVED, null otherwise (except for SolverAnytime,
+	// which gives the best solution found before being cut off)
+	public final LinkedList<CarMove> winningMoves;
+	public final SolverStats stats;
+
+
+	public SolveResult(Status status, LinkedList<CarMove> winningMoves, SolverStats stats) {
+		this.status = status;
+		this.winningMoves = winningMoves;
+		this.stats = stats;
+	}
+
+
+	// the result of a search cut off with the status "cutOff" (null if it was not cut off)
+	static SolveResult of(LinkedList<CarMove> winningMoves, Status cutOff, SolverStats stats) {
+		if (cutOff != null)
+			return new SolveResult(cutOff, winningMoves, stats);
+		return new SolveResult((winningMoves == null? Status.UNSOLVABLE : Status.SOLVED), winningMoves, stats);
+	}
+
+
+	@Override
+	public String toString() {
+		return status + (winningMoves == null? "" : " in " + winningMoves.size() + " moves");
+	}
+}
@@ -0,0 +1,45 @@
+import java.util.LinkedList;
+
+/**
+ * Common interface of the solvers:
+ * --------------------------------
+ * solve() returns an optimal list of moves to solve the puzzle, ending with
+ * the move pushing the red car to the exit (null if the puzzle cannot be
+ * solved), and by the end of its execution the puzzle is in its initial state.
+ * The static SolverBFS.solve can be used as a Solver: SolverBFS::solve, or
+ * SolverBFS.withStats() to keep the statistics of the search and check limits
+ */
+public interface Solver {
+	LinkedList<CarMove> solve(RushHour puzzle);
+	
+	/**
+	 * Same search as solve(puzzle), stopped as soon as one of the limits is reached or
+	 * the thread is interrupted, with the puzzle back in its initial state.
+	 * The default implementation only checks the limits before the search.
+	 */
+	default SolveResult solve(RushHour puzzle, SolveLimits limits) {
+		var cutOff = limits.check(Thread.currentThread(), 0, 0);
+		if (cutOff != null)
+			return new SolveResult(cutOff, null, getStats());
+		return SolveResult.of(solve(puzzle), null, getStats());
+	}
+	
+	// statistics of the last call to solve(), null if not tracked
+	default SolverStats getStats() {
+		return null;
+	}
+	
+	
+	// a new solver from its name: bfs, parent-bfs, astar, parallel-bfs, external-bfs or anytime
+	static Solver named(String name) {
+		switch (name) {
+		case "bfs": return SolverBFS.withStats();
+		case "parent-bfs": return new SolverParentBFS();
+		case "astar": return new SolverAStar();
+		case "parallel-bfs": return new SolverParallelBFS();
+		case "external-bfs": return new SolverExternalBFS();
+		case "anytime": return new SolverAnytime();
+		default: throw new Error("unknown solver " + name + ", expected bfs, parent-bfs, astar, parallel-bfs, external-bfs or anytime");
+		}
+	}
+}
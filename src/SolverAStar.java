@@ -0,0 +1,241 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+
+public class SolverAStar implements Solver {
+	// value of the lower bound for configurations from which the puzzle cannot be won
+	static final int UNSOLVABLE = Integer.MAX_VALUE / 2;
+
+	// statistics of the last call to solve(), the depths are the values of f
+	private final SolverStats stats = new SolverStats();
+
+	// the open list: bucket f contains the indices of the configurations
+	// (in the StateStore) whose estimation f = g + h equals f
+	private int[][] buckets;
+	private int[] bucketSizes;
+	private int openSize; // number of entries in all the buckets, including outdated ones
+
+
+	/**
+	 * A* algorithm returning optimal solution to the puzzle:
+	 * ------------------------------------------------------
+	 * - configurations are stored in a StateStore as in SolverParentBFS, together with
+	 *   g, the number of moves of the best known path from the initial configuration,
+	 * - they are expanded by increasing f = g + h, where h = lowerBound() never exceeds
+	 *   the number of moves needed to win, so the first winning configuration
+	 *   expanded gives an optimal solution,
+	 * - h is not consistent, so a configuration reached later by a shorter path is
+	 *   updated and put back in the open list,
+	 * - the keys are arrays of PuzzleGeometry.keyWords longs, so large boards with
+	 *   many cars can be solved too.
+	 * @return the same list of moves as SolverBFS.solve(), ending with the move pushing
+	 * the red car to the exit, or null if the puzzle cannot be solved
+	 */
+	@Override
+	public LinkedList<CarMove> solve(RushHour puzzle) {
+		return solve(puzzle, SolveLimits.NONE).winningMoves;
+	}
+
+
+	@Override
+	public SolveResult solve(RushHour puzzle, SolveLimits limits) {
+		var thread = Thread.currentThread();
+		var geometry = new PuzzleGeometry(puzzle);
+		var store = new StateStore(geometry.keyWords);
+		var g = new int[1024];
+		var h = new int[1024];
+		// buffers for the configuration being expanded
+		var key = new long[geometry.keyWords];
+		var childKey = new long[geometry.keyWords];
+		var positions = new int[geometry.numCars + 1];
+		var rows = new long[geometry.height];
+		var cols = new long[geometry.width];
+		var moves = new int[geometry.maxMoves];
+		var childPositions = new int[geometry.numCars + 1];
+		var childRows = new long[geometry.height];
+		var childCols = new long[geometry.width];
+
+		stats.start("astar");
+		buckets = new int[64][];
+		bucketSizes = new int[64];
+		openSize = 0;
+		geometry.encode(puzzle, key);
+		store.add(key, -1, 0);
+		geometry.decode(key, 0, positions);
+		geometry.fillBoard(positions, rows, cols);
+		h[0] = lowerBound(geometry, positions, rows, cols);
+		if (h[0] == UNSOLVABLE)
+			return end(store, geometry, -1, null);
+		push(0, h[0]);
+
+		int f = h[0]; // the smallest non empty bucket
+		// statistics of the configurations expanded since the last change of f
+		int layerF = f;
+		int expanded = 0;
+		long generated = 0;
+		int duplicates = 0;
+		int steps = 0; // for checking the limits
+		while (f < bucketSizes.length) {
+			if (bucketSizes[f] == 0) {
+				f++;
+				continue;
+			}
+			if (f != layerF) {
+				stats.endDepth(layerF, expanded, generated, duplicates, openSize);
+				layerF = f;
+				generated = expanded = duplicates = 0;
+			}
+			if ((steps++ & SolveLimits.CHECK_MASK) == 0 || store.size() > limits.maxStates) {
+				var cutOff = limits.check(thread, store.size(), store.memoryUsage() + 8L * g.length);
+				if (cutOff != null) {
+					stats.endDepth(layerF, expanded, generated, duplicates, openSize);
+					return end(store, geometry, -1, cutOff);
+				}
+			}
+			int index = buckets[f][--bucketSizes[f]];
+			openSize--;
+			if (g[index] + h[index] != f) // the configuration was reached again by a shorter path
+				continue;
+			store.key(index, key);
+			geometry.decode(key, 0, positions);
+			geometry.fillBoard(positions, rows, cols);
+			if (geometry.won(positions, rows, cols)) {
+				stats.endDepth(layerF, expanded, generated, duplicates, openSize + 1);
+				return end(store, geometry, index, null);
+			}
+			expanded++;
+			// do not move the same car again
+			int lastCarId = (index == 0? -1 : CarMove.carId(store.move(index)));
+			int numMoves = geometry.possibleMoves(positions, rows, cols, lastCarId, moves);
+			generated += numMoves;
+			for (int i = 0; i < numMoves; i++) {
+				geometry.play(key, moves[i], childKey);
+				int child = store.add(childKey, index, moves[i]);
+				if (child == -1) {
+					duplicates++;
+					child = store.indexOf(childKey);
+					if (g[child] <= g[index] + 1)
+						continue;
+					store.setParent(child, index, moves[i]);
+				} else {
+					if (child == g.length) {
+						g = Arrays.copyOf(g, 2 * child);
+						h = Arrays.copyOf(h, 2 * child);
+					}
+					geometry.decode(childKey, 0, childPositions);
+					geometry.fillBoard(childPositions, childRows, childCols);
+					h[child] = lowerBound(geometry, childPositions, childRows, childCols);
+				}
+				g[child] = g[index] + 1;
+				if (h[child] == UNSOLVABLE)
+					continue;
+				push(child, g[child] + h[child]);
+				// h is not consistent, so f can decrease along a path
+				f = Math.min(f, g[child] + h[child]);
+			}
+		}
+		stats.endDepth(layerF, expanded, generated, duplicates, 0);
+		return end(store, geometry, -1, null);
+	}
+
+
+	@Override
+	public SolverStats getStats() {
+		return stats;
+	}
+
+
+	// the winning moves to the configuration of index winner (null if -1), recorded in the
+	// statistics, and the status of the search (cutOff if it was stopped by a limit)
+	private SolveResult end(StateStore store, PuzzleGeometry geometry, int winner, SolveResult.Status cutOff) {
+		var winningMoves = (winner == -1? null : store.winningMoves(geometry, winner));
+		stats.memory = store.memoryUsage();
+		stats.end(store.size(), (winningMoves == null? -1 : winningMoves.size()));
+		return SolveResult.of(winningMoves, cutOff, stats);
+	}
+
+
+	/**
+	 * Admissible lower bound on the number of moves needed to win from the configuration
+	 * given by positions, rows and cols (including the final move of the red car):
+	 * - 1 for the final move,
+	 * - plus 1 for each car blocking the way of the red car to the exit, each of them
+	 *   must be moved at least once (UNSOLVABLE if a wall or a car parallel to the red
+	 *   car blocks the way),
+	 * - plus, for the blocker that is the hardest to free: the smallest number of cars
+	 *   that occupy the cells it must cross to leave the red car's lane (on one side
+	 *   or the other, UNSOLVABLE for a side with a wall in these cells). These cars are
+	 *   not blockers (they are not in the red car's lane) and must all be moved at least
+	 *   once before the blocker can leave.
+	 */
+	static int lowerBound(PuzzleGeometry geometry, int[] positions, long[] rows, long[] cols) {
+		if (geometry.won(positions, rows, cols))
+			return 1;
+		int redLane = geometry.lane[1];
+		boolean redHorizontal = geometry.isHorizontal[1];
+		// the cells of the red car's lane between the car and the exit: pathStart,...,pathEnd - 1
+		int pathStart = (geometry.exitForward? positions[1] + geometry.size[1] : 0);
+		int pathEnd = (geometry.exitForward? geometry.laneLength[1] : positions[1]);
+		long walls = (redHorizontal? geometry.wallRows : geometry.wallCols)[redLane];
+		if ((walls & Parking.segment(pathStart, pathEnd - pathStart)) != 0)
+			return UNSOLVABLE;
+		int blockers = 0;
+		int maxFreeingCost = 0;
+		for (int carId = 2; carId < geometry.numCars + 1; carId++) {
+			int size = geometry.size[carId];
+			int lane = geometry.lane[carId];
+			int start = positions[carId];
+			if (geometry.isHorizontal[carId] == redHorizontal) {
+				if (lane == redLane && pathStart <= start && start < pathEnd)
+					return UNSOLVABLE;
+				continue;
+			}
+			if (lane < pathStart || lane >= pathEnd || start > redLane || start + size <= redLane)
+				continue;
+			blockers++;
+			// cells of the lane of the blocker to cross for leaving the red car's lane backwards, then forwards
+			int back = (redLane - size >= 0? carsCrossing(geometry, positions, carId, redLane - size, start - 1) : UNSOLVABLE);
+			int forth = (redLane + size < geometry.laneLength[carId]?
+					carsCrossing(geometry, positions, carId, start + size, redLane + size) : UNSOLVABLE);
+			maxFreeingCost = Math.max(maxFreeingCost, Math.min(back, forth));
+		}
+		if (maxFreeingCost == UNSOLVABLE)
+			return UNSOLVABLE;
+		return 1 + blockers + maxFreeingCost;
+	}
+
+	// number of cars occupying at least one cell of the lane of the blocker between the
+	// positions min and max of this lane, UNSOLVABLE if one of these cells is a wall
+	private static int carsCrossing(PuzzleGeometry geometry, int[] positions, int blocker, int min, int max) {
+		int blockerLane = geometry.lane[blocker];
+		boolean horizontal = geometry.isHorizontal[blocker];
+		long walls = (horizontal? geometry.wallRows : geometry.wallCols)[blockerLane];
+		if ((walls & Parking.segment(min, max - min + 1)) != 0)
+			return UNSOLVABLE;
+		int count = 0;
+		for (int carId = 1; carId < geometry.numCars + 1; carId++) {
+			int start = positions[carId];
+			int lane = geometry.lane[carId];
+			if (geometry.isHorizontal[carId] != horizontal) {
+				if (min <= lane && lane <= max && start <= blockerLane && blockerLane < start + geometry.size[carId])
+					count++;
+			} else if (lane == blockerLane && start <= max && min < start + geometry.size[carId])
+				count++;
+		}
+		return count;
+	}
+
+
+	// adds a configuration to the bucket f of the open list
+	private void push(int index, int f) {
+		if (f >= bucketSizes.length) {
+			buckets = Arrays.copyOf(buckets, 2 * f);
+			bucketSizes = Arrays.copyOf(bucketSizes, 2 * f);
+		}
+		if (buckets[f] == null)
+			buckets[f] = new int[256];
+		else if (bucketSizes[f] == buckets[f].length)
+			buckets[f] = Arrays.copyOf(buckets[f], 2 * bucketSizes[f]);
+		buckets[f][bucketSizes[f]++] = index;
+		openSize++;
+	}
+}
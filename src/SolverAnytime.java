@@ -0,0 +1,233 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+
+public class SolverAnytime implements Solver {
+	// weight of h in the priority g + weight * h of each phase, GREEDY for a priority h alone
+	private static final int GREEDY = 0;
+	private static final int[] WEIGHTS = {GREEDY, 3, 2, 1};
+
+	/**
+	 * Receives the solutions of an anytime search, each one shorter than the previous one
+	 */
+	public interface Listener {
+		/**
+		 * winningMoves: the best solution found so far
+		 * lowerBound: proven lower bound on the number of moves of an optimal solution,
+		 * the solution is optimal when it is equal to winningMoves.size() (the same
+		 * solution can be given again when only its lower bound improves)
+		 */
+		void improved(LinkedList<CarMove> winningMoves, int lowerBound);
+	}
+
+	// statistics of the last call to solve(), the depths are the phases
+	private final SolverStats stats = new SolverStats();
+
+	// the open list, as in SolverAStar: bucket p contains the configurations of priority p
+	private int[][] buckets;
+	private int[] bucketSizes;
+	private int openSize;
+	// the limit that stopped the last phase, null if none
+	private SolveResult.Status cutOff;
+
+
+	/**
+	 * Anytime search returning optimal solution to the puzzle:
+	 * --------------------------------------------------------
+	 * - a greedy search (configurations expanded by increasing SolverAStar.lowerBound(),
+	 *   the number of blocking cars, depth first among equals) quickly finds a solution,
+	 * - then weighted A* searches with priorities g + 3h, g + 2h and finally g + h (A*)
+	 *   each find a shorter solution, or prove there is none: the children that cannot
+	 *   lead to a solution shorter than the best one (g + h >= best) are not stored,
+	 * - a weighted A* with weight w finds a solution of at most w times the optimal number
+	 *   of moves, which gives the lower bound published with it, and the last phase only
+	 *   ends on an optimal solution.
+	 * Each solution is given to the listener (it can be null) as soon as it is found.
+	 * @return the same list of moves as SolverBFS.solve(), or null if the puzzle cannot be solved
+	 */
+	public LinkedList<CarMove> solve(RushHour puzzle, Listener listener) {
+		return solve(puzzle, listener, SolveLimits.NONE).winningMoves;
+	}
+
+
+	/**
+	 * Same as solve(puzzle, listener), stopped by the limits: the result of a search cut
+	 * off by a limit contains the best solution found before (null if none)
+	 */
+	public SolveResult solve(RushHour puzzle, Listener listener, SolveLimits limits) {
+		var geometry = new PuzzleGeometry(puzzle);
+		var positions = new int[geometry.numCars + 1];
+		var rows = new long[geometry.height];
+		var cols = new long[geometry.width];
+		long root = puzzle.longRepresentation();
+		geometry.decode(root, positions);
+		geometry.fillBoard(positions, rows, cols);
+		int lowerBound = SolverAStar.lowerBound(geometry, positions, rows, cols);
+
+		stats.start("anytime");
+		cutOff = null;
+		int visited = 0;
+		LinkedList<CarMove> best = null;
+		for (int phase = 0; phase < WEIGHTS.length && lowerBound < SolverAStar.UNSOLVABLE; phase++) {
+			int bound = (best == null? SolverAStar.UNSOLVABLE : best.size());
+			if (lowerBound >= bound)
+				break; // the best solution is optimal
+			var store = new StateStore();
+			var winningMoves = search(geometry, store, root, WEIGHTS[phase], bound, phase, limits);
+			visited += store.size();
+			if (cutOff != null)
+				break;
+			if (winningMoves == null) {
+				// exhaustive search: no solution shorter than the best one
+				lowerBound = bound;
+				if (best != null && listener != null)
+					listener.improved(best, lowerBound);
+				continue;
+			}
+			best = winningMoves;
+			if (WEIGHTS[phase] != GREEDY)
+				lowerBound = Math.max(lowerBound, (best.size() + WEIGHTS[phase] - 1) / WEIGHTS[phase]);
+			if (listener != null)
+				listener.improved(best, lowerBound);
+		}
+		stats.end(visited, (best == null? -1 : best.size()));
+		return SolveResult.of(best, cutOff, stats);
+	}
+
+
+	@Override
+	public LinkedList<CarMove> solve(RushHour puzzle) {
+		return solve(puzzle, null, SolveLimits.NONE).winningMoves;
+	}
+
+
+	@Override
+	public SolveResult solve(RushHour puzzle, SolveLimits limits) {
+		return solve(puzzle, null, limits);
+	}
+
+
+	/**
+	 * Runs solve(puzzle, listener) in the common ForkJoinPool: the future completes
+	 * with the optimal solution, and the listener receives the previous ones. The
+	 * puzzle must not be modified until the future completes, and a solver runs one
+	 * search at a time.
+	 */
+	public CompletableFuture<LinkedList<CarMove>> solveAsync(RushHour puzzle, Listener listener) {
+		return CompletableFuture.supplyAsync(() -> solve(puzzle, listener));
+	}
+
+
+	@Override
+	public SolverStats getStats() {
+		return stats;
+	}
+
+
+	// one phase: a best-first search of priority g + weight * h (h alone for GREEDY), returns
+	// its solution if it has less than "bound" moves, null otherwise (or if cut off by a limit)
+	private LinkedList<CarMove> search(PuzzleGeometry geometry, StateStore store, long root, int weight, int bound, int phase, SolveLimits limits) {
+		var thread = Thread.currentThread();
+		var g = new int[1024];
+		var h = new int[1024];
+		var positions = new int[geometry.numCars + 1];
+		var rows = new long[geometry.height];
+		var cols = new long[geometry.width];
+		var moves = new int[geometry.maxMoves];
+		var childPositions = new int[geometry.numCars + 1];
+		var childRows = new long[geometry.height];
+		var childCols = new long[geometry.width];
+
+		buckets = new int[64][];
+		bucketSizes = new int[64];
+		openSize = 0;
+		store.add(root, -1, 0);
+		geometry.decode(root, positions);
+		geometry.fillBoard(positions, rows, cols);
+		h[0] = SolverAStar.lowerBound(geometry, positions, rows, cols);
+		push(0, priority(0, h[0], weight));
+
+		int p = 0; // the smallest non empty bucket
+		int expanded = 0;
+		long generated = 0;
+		int duplicates = 0;
+		int peakOpen = 1;
+		int steps = 0; // for checking the limits
+		while (p < bucketSizes.length) {
+			if (bucketSizes[p] == 0) {
+				p++;
+				continue;
+			}
+			if ((steps++ & SolveLimits.CHECK_MASK) == 0 || store.size() > limits.maxStates) {
+				cutOff = limits.check(thread, store.size(), store.memoryUsage() + 8L * g.length);
+				if (cutOff != null)
+					break;
+			}
+			int index = buckets[p][--bucketSizes[p]];
+			openSize--;
+			if (priority(g[index], h[index], weight) != p) // reached again by a shorter path
+				continue;
+			long key = store.key(index);
+			geometry.decode(key, positions);
+			geometry.fillBoard(positions, rows, cols);
+			if (geometry.won(positions, rows, cols)) {
+				stats.endDepth(phase, expanded, generated, duplicates, peakOpen);
+				return store.winningMoves(geometry, index);
+			}
+			expanded++;
+			// do not move the same car again
+			int lastCarId = (index == 0? -1 : CarMove.carId(store.move(index)));
+			int numMoves = geometry.possibleMoves(positions, rows, cols, lastCarId, moves);
+			generated += numMoves;
+			for (int i = 0; i < numMoves; i++) {
+				long childKey = geometry.play(key, moves[i]);
+				int child = store.add(childKey, index, moves[i]);
+				if (child == -1) {
+					duplicates++;
+					// the greedy search does not look for shorter paths
+					child = store.indexOf(childKey);
+					if (weight == GREEDY || g[child] <= g[index] + 1)
+						continue;
+					store.setParent(child, index, moves[i]);
+				} else {
+					if (child == g.length) {
+						g = Arrays.copyOf(g, 2 * child);
+						h = Arrays.copyOf(h, 2 * child);
+					}
+					geometry.decode(childKey, childPositions);
+					geometry.fillBoard(childPositions, childRows, childCols);
+					h[child] = SolverAStar.lowerBound(geometry, childPositions, childRows, childCols);
+				}
+				g[child] = g[index] + 1;
+				// g + h moves at least through this child
+				if (h[child] == SolverAStar.UNSOLVABLE || g[child] + h[child] >= bound)
+					continue;
+				int childPriority = priority(g[child], h[child], weight);
+				push(child, childPriority);
+				p = Math.min(p, childPriority);
+			}
+			peakOpen = Math.max(peakOpen, openSize);
+		}
+		stats.endDepth(phase, expanded, generated, duplicates, peakOpen);
+		return null;
+	}
+
+	private static int priority(int g, int h, int weight) {
+		return (weight == GREEDY? h : g + weight * h);
+	}
+
+
+	// adds a configuration to the bucket p of the open list
+	private void push(int index, int p) {
+		if (p >= bucketSizes.length) {
+			buckets = Arrays.copyOf(buckets, 2 * p);
+			bucketSizes = Arrays.copyOf(bucketSizes, 2 * p);
+		}
+		if (buckets[p] == null)
+			buckets[p] = new int[256];
+		else if (bucketSizes[p] == buckets[p].length)
+			buckets[p] = Arrays.copyOf(buckets[p], 2 * bucketSizes[p]);
+		buckets[p][bucketSizes[p]++] = index;
+		openSize++;
+	}
+}
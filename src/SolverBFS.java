@@ -1,10 +1,11 @@
-import java.util.HashSet;
 import java.util.LinkedList;
 
 public class SolverBFS {
 	private static final int EXECUTE = 1;
 	private static final int EXPLORE = 0;
 	private static final int CANCEL = -1;
+	// estimated bytes of an entry of the queue (list node and MoveAction), for the memory limit
+	private static final int QUEUE_ENTRY_BYTES = 48;
 	
 	
 	/**
@@ -22,6 +23,26 @@ public class SolverBFS {
 	 * @remark We store the integer representations of the visited configuration in "visited"
 	 */
 	public static LinkedList<CarMove> solve(RushHour puzzle){
+		return solve(puzzle, null);
+	}
+	
+	
+	// same as solve(puzzle), and fills stats with the statistics of the search (if not null)
+	public static LinkedList<CarMove> solve(RushHour puzzle, SolverStats stats){
+		return solve(puzzle, stats, SolveLimits.NONE).winningMoves;
+	}
+	
+	
+	// same as solve(puzzle, stats), stopped by the limits (see Solver.solve(puzzle, limits))
+	public static SolveResult solve(RushHour puzzle, SolverStats stats, SolveLimits limits){
+		return solve(puzzle, stats, limits, null);
+	}
+	
+	
+	// same as solve(puzzle, stats, limits), recording the moves of the search in trace (if not null)
+	static SolveResult solve(RushHour puzzle, SolverStats stats, SolveLimits limits, SearchTrace trace){
+		var thread = Thread.currentThread();
+		int steps = 0; // for checking the limits
 		// at each step of the algorithm, this is the list of 
 		// moves played to get to the current configuration
 		var winningMoves = new LinkedList<CarMove>();
@@ -30,63 +51,143 @@ public class SolverBFS {
 		var moves = puzzle.getPossibleMoves();
 		for (var carMove: moves)
 			queue.add(new MoveAction(carMove, EXPLORE));
-		// list of visited configurations: we store their intRepresentation (see class RushHour)
-		var visited = new HashSet<Integer>();
-		// the algorithm's iterations
-		while (!queue.isEmpty()) {
+		// set of visited configurations: we store their longRepresentation (see class RushHour)
+		var visited = new StateSet(puzzle.stateSpaceSize());
+		// statistics of the current depth (of the explored configurations), see SolverStats
+		int depth = 0;
+		int expanded = 1;
+		int generated = moves.size();
+		int duplicates = 0;
+		int pending = moves.size(); // EXPLORE actions in the queue
+		// false if the queue is drained without winning. An initial configuration already
+		// won only needs the final move
+		boolean solved = puzzle.won();
+		if (stats != null)
+			stats.start("bfs");
+		// the algorithm's iterations, until there is nothing left to explore (the
+		// EXECUTE and CANCEL actions would otherwise cycle in the queue forever)
+		while (pending > 0 && !solved) {
+			if ((steps++ & SolveLimits.CHECK_MASK) == 0 || visited.size() > limits.maxStates) {
+				var cutOff = limits.check(thread, visited.size(), visited.memoryUsage() + (long) QUEUE_ENTRY_BYTES * queue.size());
+				if (cutOff != null) {
+					cancelMoves(puzzle, winningMoves, trace);
+					if (stats != null) {
+						stats.endDepth(depth, expanded, generated, duplicates, pending);
+						stats.memory = visited.memoryUsage();
+						stats.end(visited.size(), -1);
+					}
+					return new SolveResult(cutOff, null, stats);
+				}
+			}
 			// Get the next move-action
 			var moveAction = queue.pop();
 			var carMove = moveAction.carMove;
 			var action = moveAction.action;
 			
 			if (action == EXPLORE) {
+				pending--;
+				if (stats != null && winningMoves.size() + 1 > depth) { // first configuration of the next depth
+					stats.endDepth(depth, expanded, generated, duplicates, pending + 1);
+					depth = winningMoves.size() + 1;
+					expanded = generated = duplicates = 0;
+				}
 				// play the move and explore the resulting configuration
 				puzzle.move(carMove);
 				if (puzzle.won()) {
 					winningMoves.add(carMove);
+					if (trace != null)
+						trace.show(puzzle, carMove.carId);
+					solved = true;
 					break;
 				}
-				int representation = puzzle.integerRepresentation();
+				long representation = puzzle.longRepresentation();
 				// if this configuration is visited before, stop here
-				if (!visited.contains(representation)) {
-					visited.add(representation);
+				if (visited.add(representation)) {
 					queue.add(new MoveAction(carMove, EXECUTE)); // to reach this configuration
 					var nextMoves = puzzle.getPossibleMoves(carMove.carId); // do not move the same car again
 					for (var nextCarMove: nextMoves) // add children to the queue (next tree depth)
 						queue.add(new MoveAction(nextCarMove, EXPLORE));
 					queue.add(new MoveAction(carMove, CANCEL)); // to go back to parent configuration
-				}
+					expanded++;
+					generated += nextMoves.size();
+					pending += nextMoves.size();
+				} else
+					duplicates++;
 				// cancel the move, go back to parent
 				puzzle.cancelMove(carMove);
 			} 
 			else if (action == EXECUTE) { // play the move: go from parent to child
 				puzzle.move(carMove);
+				if (trace != null)
+					trace.show(puzzle, carMove.carId);
 				queue.add(new MoveAction(carMove, EXECUTE));
 				winningMoves.add(carMove); // track the played moves
 			}
 			else { // cancel the move: go back from child to parent
 				puzzle.cancelMove(carMove);
+				// in the trace, merged with the next move if it is executed by the same car
+				if (trace != null) {
+					var next = queue.peek();
+					if (next == null || next.action != EXECUTE || next.carMove.carId != carMove.carId)
+						trace.show(puzzle, carMove.carId);
+				}
 				queue.add(new MoveAction(carMove, CANCEL));
 				winningMoves.removeLast(); // track the played moves
 			}
 		}
 		// get the final move pushing the red car to the exit
 		var finalMove = new CarMove(1, puzzle.distToExit());
-		cancelMoves(puzzle, winningMoves);
+		if (solved && trace != null) { // shown before coming back to the initial configuration
+			puzzle.move(finalMove);
+			trace.show(puzzle, 1);
+			puzzle.cancelMove(finalMove);
+			trace.show(puzzle, 1);
+		}
+		cancelMoves(puzzle, winningMoves, trace);
 		// add the final winning move
 		winningMoves.add(finalMove);
-		return winningMoves;
+		if (stats != null) {
+			stats.endDepth(depth, expanded, generated, duplicates, 0);
+			stats.memory = visited.memoryUsage();
+			stats.end(visited.size(), (solved? winningMoves.size() : -1));
+		}
+		return SolveResult.of((solved? winningMoves : null), null, stats);
+	}
+	
+	
+	// SolverBFS.solve as a Solver, keeping the statistics of its last search
+	public static Solver withStats() {
+		var stats = new SolverStats();
+		return new Solver() {
+			@Override
+			public LinkedList<CarMove> solve(RushHour puzzle) {
+				return SolverBFS.solve(puzzle, stats);
+			}
+			
+			@Override
+			public SolveResult solve(RushHour puzzle, SolveLimits limits) {
+				return SolverBFS.solve(puzzle, stats, limits);
+			}
+			
+			@Override
+			public SolverStats getStats() {
+				return stats;
+			}
+		};
 	}
 	
 	
 	
-	// cancels a list of last played moves, changes the puzzle accordingly and shows animation
-	private static void cancelMoves(RushHour puzzle, LinkedList<CarMove> prevMoves) {
+	// cancels a list of last played moves, changes the puzzle accordingly and shows them in trace (if not null)
+	private static void cancelMoves(RushHour puzzle, LinkedList<CarMove> prevMoves, SearchTrace trace) {
 		var reversedMoves = new LinkedList<CarMove>();
 		for (var carMove: prevMoves)
 			reversedMoves.addFirst(carMove);
-		for (var carMove: reversedMoves)
+		for (var carMove: reversedMoves) {
 			puzzle.cancelMove(carMove);
+			if (trace != null)
+				trace.show(puzzle, carMove.carId);
+		}
 	}
 }
 
@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * Solving from the command line, without Swing:
+ * ---------------------------------------------
+ * - each puzzle is the name of a puzzle of Program (easy, medium, hard or hardest),
+ *   a board in the one-line format of PuzzleFormat, or a file of such boards (empty
+ *   lines and lines starting with # are ignored),
+ * - by default each puzzle is solved once, and its number of moves, number of expanded
+ *   configurations, solving time and winning moves are printed on one line,
+ * - with --bench, each puzzle is solved "warmup" times to let the JIT compile the
+ *   solver, then "runs" timed times, and the throughput in expanded configurations
+ *   per second, the time per expanded configuration, the percentiles of the solving
+ *   time, the garbage collections done during the timed runs and the peak heap usage
+ *   are printed for each puzzle.
+ * Usage: java SolverCli [--solver name] [--bench [warmup] [runs]] puzzle...
+ * (solver is one of the names of Solver.named(), astar by default)
+ */
+public class SolverCli {
+
+	public static void main(String[] args) throws IOException {
+		String solverName = "astar";
+		boolean bench = false;
+		int warmup = SolverReport.WARMUP_RUNS;
+		int runs = SolverReport.TIMED_RUNS;
+		var puzzles = new LinkedHashMap<String, RushHour>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--solver") && i + 1 < args.length)
+				solverName = args[++i];
+			else if (args[i].equals("--bench")) {
+				bench = true;
+				if (i + 1 < args.length && isNumber(args[i + 1]))
+					warmup = Integer.parseInt(args[++i]);
+				if (i + 1 < args.length && isNumber(args[i + 1]))
+					runs = Integer.parseInt(args[++i]);
+			}
+			else
+				addPuzzles(args[i], puzzles);
+		}
+		if (puzzles.isEmpty()) {
+			System.out.println("usage: java SolverCli [--solver name] [--bench [warmup] [runs]] puzzle...");
+			System.out.println("(puzzle: easy, medium, hard, hardest, a board such as GBBoJoGHIoJMGHIAAMCCCKoMooLKFFDDLEEo, or a file of boards)");
+			return;
+		}
+		if (runs < 1)
+			throw new Error("at least one timed run is needed");
+
+		var solver = Solver.named(solverName);
+		for (var puzzle: puzzles.entrySet()) {
+			if (bench)
+				bench(puzzle.getKey(), puzzle.getValue(), solverName, solver, warmup, runs);
+			else
+				solve(puzzle.getKey(), puzzle.getValue(), solver);
+		}
+	}
+
+
+	// prints "name moves expanded timeMs winningMoves" (tab separated, moves = -1 if the puzzle cannot be solved)
+	static void solve(String name, RushHour puzzle, Solver solver) {
+		long start = System.nanoTime();
+		var winningMoves = solver.solve(puzzle);
+		long time = System.nanoTime() - start;
+		System.out.println(name
+				+ "\t" + (winningMoves == null? -1 : winningMoves.size())
+				+ "\t" + (solver.getStats() == null? -1 : solver.getStats().getExpanded())
+				+ "\t" + String.format("%.3f", time / 1e6)
+				+ "\t" + (winningMoves == null? "" : PuzzleFormat.formatMoves(winningMoves)));
+	}
+
+
+	// solves the puzzle warmup + runs times and prints the measures of the timed runs
+	static void bench(String name, RushHour puzzle, String solverName, Solver solver, int warmup, int runs) {
+		for (int run = 0; run < warmup; run++)
+			solver.solve(puzzle);
+
+		// the collections and the peak usage of the heap are only counted for the timed runs
+		var collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		var heapPools = new ArrayList<MemoryPoolMXBean>();
+		for (var pool: ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP && pool.isValid())
+				heapPools.add(pool);
+		System.gc();
+		var collections = new long[collectors.size()];
+		var collectionMillis = new long[collectors.size()];
+		for (int c = 0; c < collectors.size(); c++) {
+			collections[c] = collectors.get(c).getCollectionCount();
+			collectionMillis[c] = collectors.get(c).getCollectionTime();
+		}
+		for (var pool: heapPools)
+			pool.resetPeakUsage();
+
+		var times = new long[runs];
+		long expanded = 0;
+		int moves = -1;
+		for (int run = 0; run < runs; run++) {
+			long start = System.nanoTime();
+			var winningMoves = solver.solve(puzzle);
+			times[run] = System.nanoTime() - start;
+			moves = (winningMoves == null? -1 : winningMoves.size());
+			if (solver.getStats() != null)
+				expanded += solver.getStats().getExpanded();
+		}
+
+		long peakHeap = 0;
+		for (var pool: heapPools)
+			peakHeap += pool.getPeakUsage().getUsed();
+		var gc = new StringBuilder();
+		long totalCollections = 0;
+		long totalMillis = 0;
+		for (int c = 0; c < collectors.size(); c++) {
+			long count = collectors.get(c).getCollectionCount() - collections[c];
+			long millis = collectors.get(c).getCollectionTime() - collectionMillis[c];
+			totalCollections += count;
+			totalMillis += millis;
+			gc.append(String.format("%s%s %d", (c == 0? "" : ", "), collectors.get(c).getName(), count));
+		}
+		long totalTime = Arrays.stream(times).sum();
+		Arrays.sort(times);
+
+		System.out.printf("%s with %s: %d moves, %d timed runs after %d warmup runs%n", name, solverName, moves, runs, warmup);
+		if (expanded > 0)
+			System.out.printf("  %d configurations expanded per run, %.0f configurations/s, %.1f ns per expanded configuration%n",
+					expanded / runs, expanded / (totalTime / 1e9), (double) totalTime / expanded);
+		else
+			System.out.println("  the solver does not count the expanded configurations");
+		System.out.printf("  time ms: p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n",
+				SolverReport.percentileMillis(times, 0.5), SolverReport.percentileMillis(times, 0.9),
+				SolverReport.percentileMillis(times, 0.99), times[runs - 1] / 1e6);
+		System.out.printf("  gc: %d collections, %d ms (%s)%n", totalCollections, totalMillis, gc);
+		System.out.printf("  peak heap: %.1f MB%n", peakHeap / 1e6);
+	}
+
+
+	// adds the puzzle of a name, a board or a file, named after their origin
+	static void addPuzzles(String argument, LinkedHashMap<String, RushHour> puzzles) throws IOException {
+		var puzzle = Program.namedPuzzle(argument);
+		if (puzzle != null)
+			puzzles.put(argument, puzzle);
+		else if (Files.isRegularFile(Path.of(argument))) {
+			int lineNumber = 0;
+			for (var line: Files.readAllLines(Path.of(argument))) {
+				lineNumber++;
+				if (!line.isBlank() && !line.startsWith("#"))
+					puzzles.put(Path.of(argument).getFileName() + ":" + lineNumber, PuzzleFormat.parse(line));
+			}
+		}
+		else
+			puzzles.put(argument, PuzzleFormat.parse(argument));
+	}
+
+	private static boolean isNumber(String argument) {
+		return argument.matches("\\d+");
+	}
+}
@@ -0,0 +1,491 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+
+public class SolverExternalBFS implements Solver {
+	// maximal number of files merged at once
+	private static final int MAX_FAN_IN = 64;
+	// size of the buffer of each open file
+	private static final int IO_BUFFER = 1 << 16;
+	// initial size in longs of the buffer of keys, doubled while the children of a layer do not fit
+	private static final int INITIAL_BUFFER = 1 << 12;
+
+	private final Path directory;
+	// maximal size in longs of the buffer of the keys generated in memory before being sorted
+	// and written to a run file
+	private final int bufferLongs;
+	// statistics of the last call to solve(), including the bytes read and written
+	private final SolverStats stats = new SolverStats();
+	private int numFiles;
+
+
+	/**
+	 * directory: where the files of the search are written (in a temporary sub-directory
+	 * deleted at the end of the search)
+	 * memoryBudget: approximate maximal heap used by the search, in bytes
+	 */
+	public SolverExternalBFS(Path directory, long memoryBudget) {
+		this.directory = directory;
+		long keys = (memoryBudget - (MAX_FAN_IN + 4) * (long) IO_BUFFER) / 8;
+		if (keys < 1024)
+			throw new Error("the memory budget must be at least " + ((MAX_FAN_IN + 4) * IO_BUFFER + 8 * 1024) + " bytes");
+		this.bufferLongs = (int) Math.min(keys, Integer.MAX_VALUE - 8);
+	}
+
+	// files in the temporary directory, 64 MB of heap
+	public SolverExternalBFS() {
+		this(Path.of(System.getProperty("java.io.tmpdir")), 64L << 20);
+	}
+
+
+	/**
+	 * External-memory BFS returning optimal solution to the puzzle:
+	 * -------------------------------------------------------------
+	 * - each depth of the BFS (a layer) is a file of the keys of its configurations
+	 *   (records of PuzzleGeometry.keyWords longs, so large boards with many cars can be
+	 *   solved too), sorted and written as the differences between consecutive keys in
+	 *   variable length (see KeyWriter), usually 1 or 2 bytes per configuration,
+	 * - the configurations of a layer are read from its file and expanded; their
+	 *   children are gathered in a buffer, which grows up to the size allowed by the
+	 *   memory budget, and is sorted and written to a run file each time it is full,
+	 * - the runs are merged into the file of the next layer, removing the duplicates and
+	 *   the keys of the current and previous layers: moves can be reversed, so the
+	 *   neighbours of a configuration are in the previous, the same, or the next layer,
+	 *   and these two layers are enough to remove all the configurations already visited,
+	 * - the files of the layers are kept until the end: when a winning configuration is
+	 *   found, the path is rebuilt backwards by finding, in each previous layer, a
+	 *   neighbour of the current configuration.
+	 * The heap used only depends on the memory budget, not on the number of configurations,
+	 * and small searches only use a small buffer.
+	 * The bytes read and written are given by getStats().
+	 * @return the same list of moves as SolverBFS.solve(), or null if the puzzle cannot be solved
+	 */
+	@Override
+	public LinkedList<CarMove> solve(RushHour puzzle) {
+		return solve(puzzle, SolveLimits.NONE).winningMoves;
+	}
+
+
+	// the memory limit is compared to the buffer of keys, the files are not counted
+	@Override
+	public SolveResult solve(RushHour puzzle, SolveLimits limits) {
+		var thread = Thread.currentThread();
+		var geometry = new PuzzleGeometry(puzzle);
+		int words = geometry.keyWords;
+		var key = new long[words];
+		var child = new long[words];
+		var positions = new int[geometry.numCars + 1];
+		var rows = new long[geometry.height];
+		var cols = new long[geometry.width];
+		var moves = new int[geometry.maxMoves];
+		// a whole number of keys, allocated by each search so that it is not kept once the search is over
+		int maxLongs = Math.max(words, bufferLongs / words * words);
+		var buffer = new long[Math.min(maxLongs, Math.max(words, INITIAL_BUFFER / words * words))];
+
+		stats.start("external-bfs");
+		Path searchDirectory = null;
+		try {
+			searchDirectory = Files.createTempDirectory(directory, "rushhour-bfs");
+			geometry.encode(puzzle, key);
+			if (puzzle.won())
+				return end(geometry, new LinkedList<CarMove>(), key, 1, null);
+			var layers = new ArrayList<Path>();
+			System.arraycopy(key, 0, buffer, 0, words);
+			layers.add(writeRun(searchDirectory, buffer, 1, words));
+			int visited = 1;
+			int layerSize = 1;
+			for (int depth = 0; ; depth++) {
+				var runs = new ArrayList<Path>();
+				int numKeys = 0;
+				int expanded = 0;
+				long generated = 0;
+				try (var layer = new KeyReader(layers.get(depth), words)) {
+					while (layer.hasNext()) {
+						if ((expanded & SolveLimits.CHECK_MASK) == 0 || visited > limits.maxStates) {
+							var cutOff = limits.check(thread, visited, 8L * buffer.length);
+							if (cutOff != null) {
+								stats.endDepth(depth, expanded, generated, 0, layerSize);
+								return end(geometry, null, null, visited, cutOff);
+							}
+						}
+						System.arraycopy(layer.next(), 0, key, 0, words);
+						expanded++;
+						geometry.decode(key, 0, positions);
+						geometry.fillBoard(positions, rows, cols);
+						int numMoves = geometry.possibleMoves(positions, rows, cols, -1, moves);
+						generated += numMoves;
+						for (int i = 0; i < numMoves; i++) {
+							geometry.play(key, moves[i], child);
+							if (geometry.wonAfter(positions, rows, cols, moves[i])) {
+								stats.endDepth(depth, expanded, generated, 0, layerSize);
+								var path = path(geometry, layers, depth, key);
+								path.add(CarMove.unpack(moves[i]));
+								return end(geometry, path, child, visited, null);
+							}
+							if ((numKeys + 1) * words > buffer.length) {
+								// grown while the children of the layer fit in the budget, then written in runs
+								if (buffer.length < maxLongs)
+									buffer = Arrays.copyOf(buffer, (int) Math.min(maxLongs, 2L * buffer.length));
+								else {
+									runs.add(writeRun(searchDirectory, buffer, numKeys, words));
+									numKeys = 0;
+								}
+							}
+							System.arraycopy(child, 0, buffer, numKeys++ * words, words);
+						}
+					}
+				}
+				if (numKeys > 0)
+					runs.add(writeRun(searchDirectory, buffer, numKeys, words));
+				var next = merge(searchDirectory, runs, words, layers.get(depth), (depth > 0? layers.get(depth - 1) : null));
+				int nextSize = next.count;
+				layers.add(next.path);
+				visited += nextSize;
+				stats.endDepth(depth, expanded, generated, generated - nextSize, layerSize);
+				layerSize = nextSize;
+				if (nextSize == 0)
+					return end(geometry, null, null, visited, null);
+			}
+		} catch (IOException e) {
+			throw new Error("external search failed", e);
+		} finally {
+			if (searchDirectory != null)
+				delete(searchDirectory);
+		}
+	}
+
+
+	@Override
+	public SolverStats getStats() {
+		return stats;
+	}
+
+
+	// the path followed by the final move, recorded in the statistics, and the status
+	// of the search (cutOff if it was stopped by a limit)
+	private SolveResult end(PuzzleGeometry geometry, LinkedList<CarMove> path, long[] winner, int visited, SolveResult.Status cutOff) {
+		if (path != null) {
+			var positions = new int[geometry.numCars + 1];
+			geometry.decode(winner, 0, positions);
+			path.add(new CarMove(1, geometry.distToExit(positions)));
+		}
+		stats.end(visited, (path == null? -1 : path.size()));
+		return SolveResult.of(path, cutOff, stats);
+	}
+
+
+	// the moves from the root to the configuration "key" of the layer "depth"
+	private LinkedList<CarMove> path(PuzzleGeometry geometry, ArrayList<Path> layers, int depth, long[] key) throws IOException {
+		int words = geometry.keyWords;
+		key = key.clone();
+		var positions = new int[geometry.numCars + 1];
+		var rows = new long[geometry.height];
+		var cols = new long[geometry.width];
+		var moves = new int[geometry.maxMoves];
+		var neighbour = new long[words];
+		var neighbours = new long[geometry.maxMoves * words]; // the key of the neighbour i from i * words
+		var path = new LinkedList<CarMove>();
+		for (int d = depth; d > 0; d--) {
+			geometry.decode(key, 0, positions);
+			geometry.fillBoard(positions, rows, cols);
+			int numMoves = geometry.possibleMoves(positions, rows, cols, -1, moves);
+			// indices of the neighbours, sorted by key
+			for (int i = 0; i < numMoves; i++) {
+				geometry.play(key, moves[i], neighbour);
+				System.arraycopy(neighbour, 0, neighbours, i * words, words);
+			}
+			var order = new Integer[numMoves];
+			for (int i = 0; i < numMoves; i++)
+				order[i] = i;
+			Arrays.sort(order, (i, j) -> compare(neighbours, i * words, neighbours, j * words, words));
+			int found = -1;
+			try (var layer = new KeyReader(layers.get(d - 1), words)) {
+				int n = 0;
+				while (found == -1 && n < numMoves && layer.hasNext()) {
+					var previous = layer.next();
+					while (n < numMoves && compare(neighbours, order[n] * words, previous, 0, words) < 0)
+						n++;
+					if (n < numMoves && compare(neighbours, order[n] * words, previous, 0, words) == 0)
+						found = order[n];
+				}
+			}
+			if (found == -1)
+				throw new Error("no parent found in the layer " + (d - 1));
+			// the opposite move goes from the neighbour to the current configuration
+			path.addFirst(new CarMove(CarMove.carId(moves[found]), -CarMove.dxy(moves[found])));
+			System.arraycopy(neighbours, found * words, key, 0, words);
+		}
+		return path;
+	}
+
+
+	// compares the keys of "words" longs a[aOffset...] and b[bOffset...], word by word
+	// (the words of the keys are positive)
+	static int compare(long[] a, int aOffset, long[] b, int bOffset, int words) {
+		for (int w = 0; w < words; w++) {
+			int c = Long.compare(a[aOffset + w], b[bOffset + w]);
+			if (c != 0)
+				return c;
+		}
+		return 0;
+	}
+
+
+	// sorts the first n keys of "words" longs of the buffer, removes duplicates and writes them to a new file
+	private Path writeRun(Path searchDirectory, long[] keys, int n, int words) throws IOException {
+		if (words == 1)
+			Arrays.sort(keys, 0, n);
+		else
+			sortKeys(keys, 0, n, words, new long[words]);
+		var path = searchDirectory.resolve("run-" + (numFiles++));
+		try (var writer = new KeyWriter(path, words)) {
+			for (int i = 0; i < n; i++)
+				if (i == 0 || compare(keys, i * words, keys, (i - 1) * words, words) != 0)
+					writer.write(keys, i * words);
+		}
+		return path;
+	}
+
+	// sorts the keys from..to - 1 of "words" longs in place (quicksort, insertion sort of
+	// the small ranges), using the buffer pivot of "words" longs
+	private static void sortKeys(long[] keys, int from, int to, int words, long[] pivot) {
+		while (to - from > 16) {
+			System.arraycopy(keys, (from + (to - from) / 2) * words, pivot, 0, words);
+			int i = from, j = to - 1;
+			while (i <= j) {
+				while (compare(keys, i * words, pivot, 0, words) < 0)
+					i++;
+				while (compare(keys, j * words, pivot, 0, words) > 0)
+					j--;
+				if (i <= j)
+					swapKeys(keys, i++, j--, words);
+			}
+			// recursion on the smaller part, so that the depth is at most log2(n)
+			if (j + 1 - from < to - i) {
+				sortKeys(keys, from, j + 1, words, pivot);
+				from = i;
+			} else {
+				sortKeys(keys, i, to, words, pivot);
+				to = j + 1;
+			}
+		}
+		for (int i = from + 1; i < to; i++)
+			for (int j = i; j > from && compare(keys, (j - 1) * words, keys, j * words, words) > 0; j--)
+				swapKeys(keys, j - 1, j, words);
+	}
+
+	private static void swapKeys(long[] keys, int i, int j, int words) {
+		for (int w = 0; w < words; w++) {
+			long key = keys[i * words + w];
+			keys[i * words + w] = keys[j * words + w];
+			keys[j * words + w] = key;
+		}
+	}
+
+
+	// a file and its number of keys
+	private static class MergedFile {
+		final Path path;
+		final int count;
+
+		MergedFile(Path path, int count) {
+			this.path = path;
+			this.count = count;
+		}
+	}
+
+	// merges the runs into a sorted file without duplicates, without the keys of the
+	// files "excluded" (null if none), and deletes the runs
+	private MergedFile merge(Path searchDirectory, ArrayList<Path> runs, int words, Path... excluded) throws IOException {
+		// too many runs to open them at once: merge them by groups first
+		while (runs.size() > MAX_FAN_IN) {
+			var group = new ArrayList<Path>(runs.subList(0, MAX_FAN_IN));
+			runs.subList(0, MAX_FAN_IN).clear();
+			runs.add(merge(searchDirectory, group, words).path);
+		}
+		var path = searchDirectory.resolve("run-" + (numFiles++));
+		int count = 0;
+		var readers = new PriorityQueue<KeyReader>((a, b) -> compare(a.current(), 0, b.current(), 0, words));
+		var exclusions = new ArrayList<KeyReader>();
+		try (var writer = new KeyWriter(path, words)) {
+			for (var run: runs) {
+				var reader = new KeyReader(run, words);
+				if (reader.hasNext()) {
+					reader.next();
+					readers.add(reader);
+				} else
+					reader.close();
+			}
+			for (var file: excluded)
+				if (file != null)
+					exclusions.add(new KeyReader(file, words));
+			var key = new long[words];
+			boolean first = true;
+			while (!readers.isEmpty()) {
+				var reader = readers.poll();
+				// the same key as the last one, already written (or excluded)
+				boolean duplicate = (!first && compare(reader.current(), 0, key, 0, words) == 0);
+				System.arraycopy(reader.current(), 0, key, 0, words);
+				first = false;
+				if (reader.hasNext()) {
+					reader.next();
+					readers.add(reader);
+				} else
+					reader.close();
+				if (duplicate)
+					continue;
+				if (!isIn(key, exclusions)) {
+					writer.write(key, 0);
+					count++;
+				}
+			}
+		} finally {
+			for (var reader: readers)
+				reader.close();
+			for (var reader: exclusions)
+				reader.close();
+			for (var run: runs)
+				Files.deleteIfExists(run);
+		}
+		return new MergedFile(path, count);
+	}
+
+	// true if the key is in one of the sorted files read by the readers, which
+	// are advanced up to the key (the keys must be given in increasing order)
+	private static boolean isIn(long[] key, ArrayList<KeyReader> readers) throws IOException {
+		for (var reader: readers) {
+			int words = key.length;
+			while ((!reader.started() || compare(reader.current(), 0, key, 0, words) < 0) && reader.hasNext())
+				reader.next();
+			if (reader.started() && compare(reader.current(), 0, key, 0, words) == 0)
+				return true;
+		}
+		return false;
+	}
+
+
+	private void delete(Path searchDirectory) {
+		try (var files = Files.list(searchDirectory)) {
+			for (var file: (Iterable<Path>) files::iterator)
+				Files.deleteIfExists(file);
+			Files.deleteIfExists(searchDirectory);
+		} catch (IOException e) {
+			throw new Error("cannot delete " + searchDirectory, e);
+		}
+	}
+
+
+
+	// Writes increasing keys of "words" longs to a file, word by word: the words equal to the
+	// words of the previous key are written as 0, the first different word as its (positive)
+	// difference with the previous one, the next words as they are. Each number in variable
+	// length: 7 bits per byte, the high bit set on all the bytes but the last one
+	private class KeyWriter implements AutoCloseable {
+		private final OutputStream output;
+		private final long[] previous;
+
+		KeyWriter(Path path, int words) throws IOException {
+			output = new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER);
+			previous = new long[words];
+		}
+
+		// writes the key keys[offset],...,keys[offset + words - 1]
+		void write(long[] keys, int offset) throws IOException {
+			boolean different = false;
+			for (int w = 0; w < previous.length; w++) {
+				long word = keys[offset + w];
+				writeNumber(different? word : word - previous[w]);
+				different |= (word != previous[w]);
+				previous[w] = word;
+			}
+		}
+
+		private void writeNumber(long number) throws IOException {
+			while ((number & ~0x7FL) != 0) {
+				output.write((int) (number & 0x7F) | 0x80);
+				number >>>= 7;
+				stats.bytesWritten++;
+			}
+			output.write((int) number);
+			stats.bytesWritten++;
+		}
+
+		@Override
+		public void close() throws IOException {
+			output.close();
+		}
+	}
+
+	// Reads the keys written by a KeyWriter
+	private class KeyReader implements AutoCloseable {
+		private final InputStream input;
+		private final long[] current;
+		private boolean started = false;
+		private int nextByte;
+
+		KeyReader(Path path, int words) throws IOException {
+			input = new BufferedInputStream(Files.newInputStream(path), IO_BUFFER);
+			current = new long[words];
+			nextByte = input.read();
+		}
+
+		boolean hasNext() {
+			return nextByte != -1;
+		}
+
+		// reads the next key in current(), returned
+		long[] next() throws IOException {
+			boolean different = false;
+			for (int w = 0; w < current.length; w++) {
+				long number = readNumber();
+				long word = (different? number : current[w] + number);
+				different |= (word != current[w]);
+				current[w] = word;
+			}
+			started = true;
+			return current;
+		}
+
+		private long readNumber() throws IOException {
+			long number = 0;
+			int shift = 0;
+			int b = nextByte;
+			if (b < 0)
+				throw new IOException("truncated file of keys");
+			while (true) {
+				stats.bytesRead++;
+				number |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					break;
+				shift += 7;
+				b = input.read();
+				if (b < 0) // -1 would be read as a byte with a next byte
+					throw new IOException("truncated file of keys");
+			}
+			nextByte = input.read();
+			return number;
+		}
+
+		// the last key read, not to be modified
+		long[] current() {
+			return current;
+		}
+
+		boolean started() {
+			return started;
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+}
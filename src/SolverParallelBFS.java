@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SolverParallelBFS implements Solver {
+	// minimum number of configurations expanded by one task
+	private static final int MIN_CHUNK = 256;
+
+	private final int threads;
+	// statistics of the last call to solve()
+	private final SolverStats stats = new SolverStats();
+
+
+	// threads: number of worker threads used to expand each depth of the BFS
+	public SolverParallelBFS(int threads) {
+		if (threads < 1)
+			throw new Error("the number of threads must be positive");
+		this.threads = threads;
+	}
+
+	// uses all the available processors
+	public SolverParallelBFS() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Level-synchronous parallel BFS returning optimal solution to the puzzle:
+	 * ------------------------------------------------------------------------
+	 * - same search as SolverParentBFS, but the configurations at depth d (the frontier)
+	 *   are split in chunks expanded in parallel by a ForkJoinPool,
+	 * - each worker thread has its own buffers for decoding configurations and
+	 *   generating moves, and the discovered configurations are added to a
+	 *   StripedStateStore shared by all the workers,
+	 * - the configurations at depth d+1 are only expanded once all the depth d is done,
+	 *   so the first winning configuration found is at the smallest possible depth
+	 *   and the solution is optimal.
+	 * The workers check the limits of solve(puzzle, limits) and the interruption of the calling thread.
+	 * @return the same list of moves as SolverBFS.solve(), or null if the puzzle cannot be solved
+	 */
+	@Override
+	public LinkedList<CarMove> solve(RushHour puzzle) {
+		return solve(puzzle, SolveLimits.NONE).winningMoves;
+	}
+
+
+	@Override
+	public SolveResult solve(RushHour puzzle, SolveLimits limits) {
+		var geometry = new PuzzleGeometry(puzzle);
+		var store = new StripedStateStore();
+		var buffers = ThreadLocal.withInitial(() -> new Buffers(geometry));
+		var winner = new AtomicInteger(-1);
+		// the limit that stopped a worker, null if none
+		var cutOff = new AtomicReference<SolveResult.Status>();
+		var caller = Thread.currentThread();
+
+		stats.start("parallel-bfs");
+		int root = store.add(puzzle.longRepresentation(), -1, 0);
+		if (puzzle.won())
+			return end(store, geometry, root, null);
+		var frontier = new Chunk(16);
+		frontier.add(root, puzzle.longRepresentation(), -1);
+		var pool = new ForkJoinPool(threads);
+		int depth = 0;
+		try {
+			while (frontier.size > 0 && winner.get() == -1 && cutOff.get() == null) {
+				// split the frontier in chunks, several per thread for load balancing
+				int chunkSize = Math.max(MIN_CHUNK, frontier.size / (4 * threads) + 1);
+				var tasks = new ArrayList<ForkJoinTask<Chunk>>();
+				for (int start = 0; start < frontier.size; start += chunkSize) {
+					var current = frontier;
+					int from = start;
+					int to = Math.min(frontier.size, start + chunkSize);
+					Callable<Chunk> task = () -> current.expand(from, to, geometry, store, buffers.get(), winner, limits, caller, cutOff);
+					tasks.add(pool.submit(task));
+				}
+				// gather the next frontier
+				var next = new Chunk(16);
+				int expanded = 0;
+				long generated = 0;
+				long duplicates = 0;
+				// join() does not throw when the calling thread is interrupted: the
+				// workers see the interruption and stop (see Chunk.expand())
+				for (var task: tasks) {
+					var children = task.join();
+					next.addAll(children);
+					expanded += children.expanded;
+					generated += children.generated;
+					duplicates += children.duplicates;
+				}
+				stats.endDepth(depth++, expanded, generated, duplicates, frontier.size);
+				frontier = next;
+			}
+		} catch (Exception e) {
+			throw new Error("parallel search failed", e);
+		} finally {
+			pool.shutdown();
+		}
+		if (winner.get() != -1)
+			return end(store, geometry, winner.get(), null);
+		return end(store, geometry, -1, cutOff.get());
+	}
+
+
+	@Override
+	public SolverStats getStats() {
+		return stats;
+	}
+
+
+	// the winning moves to the configuration of id winner (null if -1), recorded in the
+	// statistics, and the status of the search (cutOff if it was stopped by a limit)
+	private SolveResult end(StripedStateStore store, PuzzleGeometry geometry, int winner, SolveResult.Status cutOff) {
+		var winningMoves = (winner == -1? null : store.winningMoves(geometry, winner));
+		stats.memory = store.memoryUsage();
+		stats.end(store.size(), (winningMoves == null? -1 : winningMoves.size()));
+		return SolveResult.of(winningMoves, cutOff, stats);
+	}
+
+
+
+	// buffers of one worker thread
+	private static class Buffers {
+		final int[] positions;
+		final long[] rows;
+		final long[] cols;
+		final int[] moves;
+
+		Buffers(PuzzleGeometry geometry) {
+			positions = new int[geometry.numCars + 1];
+			rows = new long[geometry.height];
+			cols = new long[geometry.width];
+			moves = new int[geometry.maxMoves];
+		}
+	}
+
+
+	// a list of configurations: their ids in the store, their keys, and the
+	// car moved to reach them. The keys are copied here so that the workers
+	// never read the store while other workers are adding configurations to it
+	private static class Chunk {
+		int[] ids;
+		long[] keys;
+		int[] lastCarIds;
+		int size = 0;
+
+		// statistics of the expansions that found these configurations
+		int expanded = 0;
+		long generated = 0;
+		long duplicates = 0;
+
+		Chunk(int capacity) {
+			ids = new int[Math.max(capacity, 16)];
+			keys = new long[ids.length];
+			lastCarIds = new int[ids.length];
+		}
+
+		void add(int id, long key, int lastCarId) {
+			if (size == ids.length)
+				ensureCapacity(2 * size);
+			ids[size] = id;
+			keys[size] = key;
+			lastCarIds[size++] = lastCarId;
+		}
+
+		void addAll(Chunk other) {
+			ensureCapacity(size + other.size);
+			System.arraycopy(other.ids, 0, ids, size, other.size);
+			System.arraycopy(other.keys, 0, keys, size, other.size);
+			System.arraycopy(other.lastCarIds, 0, lastCarIds, size, other.size);
+			size += other.size;
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity <= ids.length)
+				return;
+			capacity = Math.max(capacity, 2 * ids.length);
+			ids = Arrays.copyOf(ids, capacity);
+			keys = Arrays.copyOf(keys, capacity);
+			lastCarIds = Arrays.copyOf(lastCarIds, capacity);
+		}
+
+		// expands the configurations from index "from" to "to" (excluded), returns the new ones.
+		// Stops when a worker finds a winning configuration or a limit is reached (the size
+		// of the store is only approximate while the workers add configurations)
+		Chunk expand(int from, int to, PuzzleGeometry geometry, StripedStateStore store, Buffers buffers,
+				AtomicInteger winner, SolveLimits limits, Thread caller, AtomicReference<SolveResult.Status> cutOff) {
+			var children = new Chunk(4 * (to - from));
+			for (int i = from; i < to && winner.get() == -1; i++) {
+				if (((i - from) & SolveLimits.CHECK_MASK) == 0) {
+					var status = limits.check(caller, store.size(), store.memoryUsage());
+					if (status != null)
+						cutOff.compareAndSet(null, status);
+					if (cutOff.get() != null)
+						break;
+				}
+				long key = keys[i];
+				children.expanded++;
+				geometry.decode(key, buffers.positions);
+				geometry.fillBoard(buffers.positions, buffers.rows, buffers.cols);
+				// do not move the same car again
+				int numMoves = geometry.possibleMoves(buffers.positions, buffers.rows, buffers.cols, lastCarIds[i], buffers.moves);
+				children.generated += numMoves;
+				for (int m = 0; m < numMoves; m++) {
+					int move = buffers.moves[m];
+					long childKey = geometry.play(key, move);
+					int child = store.add(childKey, ids[i], move);
+					if (child == -1) {
+						children.duplicates++;
+						continue;
+					}
+					if (geometry.wonAfter(buffers.positions, buffers.rows, buffers.cols, move)) {
+						winner.compareAndSet(-1, child);
+						break;
+					}
+					children.add(child, childKey, CarMove.carId(move));
+				}
+			}
+			return children;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+import java.util.LinkedList;
+
+public class SolverParentBFS implements Solver {
+	// statistics of the last call to solve()
+	private final SolverStats stats = new SolverStats();
+
+
+	/**
+	 * BFS algorithm with parent links returning optimal solution to the puzzle:
+	 * ------------------------------------------------------------------------
+	 * - each discovered configuration is stored once in a StateStore, with the index
+	 *   of its parent configuration and the move leading from the parent to it,
+	 * - the store is also the BFS queue: configurations are expanded in their order
+	 *   of insertion, i.e. by increasing number of moves from the initial one,
+	 * - a configuration is expanded directly from its key (decoded with PuzzleGeometry
+	 *   into local buffers), so the puzzle is never modified during the search,
+	 * - when a winning configuration is found, the winning moves are rebuilt by
+	 *   following the parent links back to the initial configuration,
+	 * - the keys are arrays of PuzzleGeometry.keyWords longs, so large boards with
+	 *   many cars can be solved too.
+	 * @return the same list of moves as SolverBFS.solve(), ending with the move pushing
+	 * the red car to the exit, or null if the puzzle cannot be solved
+	 */
+	@Override
+	public LinkedList<CarMove> solve(RushHour puzzle) {
+		return solve(puzzle, SolveLimits.NONE).winningMoves;
+	}
+
+
+	@Override
+	public SolveResult solve(RushHour puzzle, SolveLimits limits) {
+		var thread = Thread.currentThread();
+		var geometry = new PuzzleGeometry(puzzle);
+		var store = new StateStore(geometry.keyWords);
+		// buffers for the configuration being expanded
+		var key = new long[geometry.keyWords];
+		var childKey = new long[geometry.keyWords];
+		var positions = new int[geometry.numCars + 1];
+		var rows = new long[geometry.height];
+		var cols = new long[geometry.width];
+		var moves = new int[geometry.maxMoves];
+
+		stats.start("parent-bfs");
+		geometry.encode(puzzle, key);
+		store.add(key, -1, 0);
+		if (puzzle.won())
+			return end(store, geometry, 0, null);
+		// the configurations at the current depth are stored between depthStart and depthEnd
+		int depth = 0;
+		int depthStart = 0;
+		int depthEnd = 1;
+		long generated = 0;
+		int duplicates = 0;
+		for (int index = 0; index < store.size(); index++) {
+			if (index == depthEnd) {
+				stats.endDepth(depth++, depthEnd - depthStart, generated, duplicates, depthEnd - depthStart);
+				depthStart = depthEnd;
+				depthEnd = store.size();
+				generated = duplicates = 0;
+			}
+			if ((index & SolveLimits.CHECK_MASK) == 0 || store.size() > limits.maxStates) {
+				var cutOff = limits.check(thread, store.size(), store.memoryUsage());
+				if (cutOff != null) {
+					stats.endDepth(depth, index - depthStart, generated, duplicates, depthEnd - depthStart);
+					return end(store, geometry, -1, cutOff);
+				}
+			}
+			store.key(index, key);
+			geometry.decode(key, 0, positions);
+			geometry.fillBoard(positions, rows, cols);
+			// do not move the same car again
+			int lastCarId = (index == 0? -1 : CarMove.carId(store.move(index)));
+			int numMoves = geometry.possibleMoves(positions, rows, cols, lastCarId, moves);
+			generated += numMoves;
+			for (int i = 0; i < numMoves; i++) {
+				geometry.play(key, moves[i], childKey);
+				int child = store.add(childKey, index, moves[i]);
+				if (child == -1)
+					duplicates++;
+				else if (geometry.wonAfter(positions, rows, cols, moves[i])) {
+					stats.endDepth(depth, index + 1 - depthStart, generated, duplicates, depthEnd - depthStart);
+					return end(store, geometry, child, null);
+				}
+			}
+		}
+		stats.endDepth(depth, depthEnd - depthStart, generated, duplicates, depthEnd - depthStart);
+		return end(store, geometry, -1, null);
+	}
+
+
+	@Override
+	public SolverStats getStats() {
+		return stats;
+	}
+
+
+	// the winning moves to the configuration of index winner (null if -1), recorded in the
+	// statistics, and the status of the search (cutOff if it was stopped by a limit)
+	private SolveResult end(StateStore store, PuzzleGeometry geometry, int winner, SolveResult.Status cutOff) {
+		var winningMoves = (winner == -1? null : store.winningMoves(geometry, winner));
+		stats.memory = store.memoryUsage();
+		stats.end(store.size(), (winningMoves == null? -1 : winningMoves.size()));
+		return SolveResult.of(winningMoves, cutOff, stats);
+	}
+}
@@ -0,0 +1,133 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Side-by-side comparison of the solvers on the puzzles defined in Program:
+ * for each puzzle and solver, prints the length of the solution, the number
+ * of expanded configurations and the median solving time.
+ * With the argument --threads [maxThreads], prints instead the speedup of
+ * SolverParallelBFS against its number of threads, on the puzzles of Program
+ * and on random 8x8 puzzles. With --stats, prints the statistics of each search
+ * (see SolverStats) after its line.
+ */
+public class SolverReport {
+	static final int WARMUP_RUNS = 5;
+	static final int TIMED_RUNS = 11;
+	// --stats: prints the statistics of the search after each line
+	static boolean printStats = false;
+
+
+	public static void main(String[] args) {
+		var puzzles = new LinkedHashMap<String, Supplier<RushHour>>();
+		puzzles.put("easy", Program::easyPuzzle);
+		puzzles.put("medium", Program::mediumPuzzle);
+		puzzles.put("hard", Program::hardPuzzle);
+		puzzles.put("hardest", Program::hardestPuzzle);
+
+		var solvers = new LinkedHashMap<String, Supplier<Solver>>();
+		solvers.put("SolverBFS", SolverBFS::withStats);
+		solvers.put("SolverParentBFS", SolverParentBFS::new);
+		solvers.put("SolverAStar", SolverAStar::new);
+		solvers.put("SolverParallelBFS", SolverParallelBFS::new);
+
+		if (args.length > 0 && args[0].equals("--threads")) {
+			int maxThreads = (args.length > 1? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors());
+			// random 8x8 puzzles whose BFS expands between 0.8 and 1.5 million configurations
+			for (long seed: new long[] {5, 29, 36})
+				puzzles.put("random8x8-" + seed, () -> randomPuzzle(8, 8, 16, seed));
+			speedups(puzzles, maxThreads);
+			return;
+		}
+
+		printStats = (args.length > 0 && args[0].equals("--stats"));
+		System.out.printf("%-8s %-18s %6s %10s %10s%n", "puzzle", "solver", "moves", "expanded", "time (ms)");
+		for (var puzzle: puzzles.entrySet())
+			for (var solver: solvers.entrySet())
+				report(puzzle.getKey(), puzzle.getValue().get(), solver.getKey(), solver.getValue().get());
+	}
+
+
+	// solves the puzzle several times and prints one line of the report
+	static void report(String puzzleName, RushHour puzzle, String solverName, Solver solver) {
+		var winningMoves = solver.solve(puzzle);
+		int moves = (winningMoves == null? -1 : winningMoves.size());
+		var stats = solver.getStats();
+		System.out.printf("%-8s %-18s %6d %10s %10.2f%n", puzzleName, solverName, moves,
+				(stats == null? "-" : String.valueOf(stats.getExpanded())), medianTime(solver, puzzle, WARMUP_RUNS, TIMED_RUNS) / 1e6);
+		if (printStats && stats != null)
+			System.out.println(stats);
+	}
+
+
+	// prints the speedup of SolverParallelBFS with 1, 2, 4... maxThreads threads
+	static void speedups(LinkedHashMap<String, Supplier<RushHour>> puzzles, int maxThreads) {
+		System.out.printf("%-14s %8s %8s %10s %8s%n", "puzzle", "threads", "moves", "time (ms)", "speedup");
+		for (var entry: puzzles.entrySet()) {
+			var puzzle = entry.getValue().get();
+			double singleThreadTime = 0;
+			for (int threads = 1; threads <= maxThreads; threads = (threads == maxThreads? threads + 1 : Math.min(2 * threads, maxThreads))) {
+				var solver = new SolverParallelBFS(threads);
+				var winningMoves = solver.solve(puzzle);
+				double time = medianTime(solver, puzzle, 1, 3) / 1e6;
+				if (threads == 1)
+					singleThreadTime = time;
+				System.out.printf("%-14s %8d %8d %10.2f %8.2f%n", entry.getKey(), threads,
+						(winningMoves == null? -1 : winningMoves.size()), time, singleThreadTime / time);
+			}
+		}
+	}
+
+
+	// median time in nanoseconds of solver.solve(puzzle), after some warmup runs
+	static long medianTime(Solver solver, RushHour puzzle, int warmupRuns, int timedRuns) {
+		var times = new long[timedRuns];
+		for (int run = 0; run < warmupRuns; run++)
+			solver.solve(puzzle);
+		for (int run = 0; run < timedRuns; run++) {
+			long start = System.nanoTime();
+			solver.solve(puzzle);
+			times[run] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		return times[timedRuns / 2];
+	}
+
+	// percentile (between 0 and 1) in milliseconds of times in nanoseconds sorted in increasing order
+	static double percentileMillis(long[] sorted, double percentile) {
+		int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+		return sorted[Math.max(0, rank)] / 1e6;
+	}
+
+
+	// a puzzle with the red car on the left of the row height/2 - 1, and numCars
+	// cars of size 2 or 3 placed at random (if there is enough space)
+	static RushHour randomPuzzle(int width, int height, int numCars, long seed) {
+		return randomPuzzle(width, height, numCars, 0, seed);
+	}
+
+	// same with "walls" walls placed at random out of the red car's row, before the cars
+	static RushHour randomPuzzle(int width, int height, int numCars, int walls, long seed) {
+		var random = new Random(seed);
+		var puzzle = new RushHour(width, height);
+		int redRow = height / 2 - 1;
+		puzzle.addCar(0, redRow, 2, Car.HORIZONTAL, true);
+		for (int wall = 0; wall < walls; wall++) {
+			int y = random.nextInt(height - 1);
+			puzzle.addWall(random.nextInt(width), (y < redRow? y : y + 1));
+		}
+		for (int tries = 0; puzzle.getNumCars() < numCars && tries < 10 * numCars; tries++) {
+			int size = 2 + (random.nextInt(4) == 0? 1 : 0);
+			int orientation = (random.nextBoolean()? Car.HORIZONTAL : Car.VERTICAL);
+			int x = random.nextInt(width - (orientation == Car.HORIZONTAL? size - 1 : 0));
+			int y = random.nextInt(height - (orientation == Car.VERTICAL? size - 1 : 0));
+			// a horizontal car in the red car's row would make the puzzle unsolvable
+			if (orientation == Car.HORIZONTAL && y == redRow)
+				continue;
+			if (puzzle.parking.isFree(x, y, size, orientation))
+				puzzle.addCar(x, y, size, orientation);
+		}
+		return puzzle;
+	}
+}
@@ -0,0 +1,353 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Headless HTTP service solving puzzles (JDK HttpServer, no dependency):
+ * ----------------------------------------------------------------------
+ * - POST /solve with a one-line board (see PuzzleFormat), or a JSON object
+ *   {"board": "..."} or {"width": 6, "height": 6, "cars": [{"x": 0, "y": 2, "size": 2,
+ *   "horizontal": true, "red": true}, ...]} (the red car gets the id 1, the other cars
+ *   the ids 2, 3... in their order) with optionally "walls": [[x, y], ...] and
+ *   "exit": "right", "left", "top" or "bottom", or GET /solve?board=...
+ *   The response is {"status": "SOLVED", "numMoves": n, "moves": [{"car": id, "dxy": shift}...],
+ *   "notation": "A+2 ...", "timeMs": t, "coalesced": false}, the status being one of
+ *   SolveResult.Status (the moves are only given if SOLVED),
+ * - GET /metrics gives the numbers of requests, solves, coalesced requests and errors,
+ *   the throughput since the start and the latency percentiles of /solve,
+ * - the requests are handled on virtual threads when the JVM has them (Java 21+,
+ *   found by reflection), on a cached thread pool otherwise, and the searches run on
+ *   a fixed pool of "threads" solver threads, so blocked requests cost no CPU,
+ * - concurrent requests for the same puzzle share one search: the first one starts
+ *   it, the others wait for its result,
+ * - each search is limited to timeoutMillis from the arrival of its first request, and
+ *   to maxStates configurations and maxMemory bytes, so that one large board cannot fill
+ *   the heap before its deadline (by default DEFAULT_MAX_STATES, and a share of the
+ *   maximal heap for each solver thread).
+ * Usage: java SolverServer [port] [solver] [threads] [timeoutMs] [maxStates] [maxMemoryMB]
+ * (solver is one of the names of Solver.named(), astar by default)
+ */
+public class SolverServer {
+	private static final int MAX_BODY = 1 << 16;
+	// latency histogram: bucket b counts the latencies in [2^b, 2^(b+1)) microseconds
+	private static final int LATENCY_BUCKETS = 40;
+	// names of the exits in the requests, indexed by RushHour.EXIT_RIGHT...
+	private static final List<String> EXITS = List.of("right", "left", "bottom", "top");
+	// default limit of the configurations of a search, far more than the largest cluster of a 6x6 board
+	static final int DEFAULT_MAX_STATES = 5_000_000;
+
+	private final HttpServer server;
+	private final ExecutorService requestExecutor;
+	private final boolean virtualThreads;
+	private final ExecutorService solvePool;
+	// one solver per solver thread, the solvers are not thread safe
+	private final ThreadLocal<Solver> solvers;
+	private final long timeoutMillis;
+	private final int maxStates;
+	private final long maxMemory;
+	// the searches in progress, by key of their puzzle (see key())
+	private final ConcurrentHashMap<String, CompletableFuture<SolveResult>> inFlight = new ConcurrentHashMap<>();
+
+	private final long startTime = System.nanoTime();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder solves = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BUCKETS);
+	private final AtomicLong maxLatency = new AtomicLong();
+
+
+	// port 0 chooses a free port, see port(). With the default limits of configurations and memory
+	public SolverServer(InetSocketAddress address, String solverName, int threads, long timeoutMillis) throws IOException {
+		this(address, solverName, threads, timeoutMillis, DEFAULT_MAX_STATES, defaultMaxMemory(threads));
+	}
+
+	// maxStates and maxMemory (in bytes): limits of each search (see SolveLimits)
+	public SolverServer(InetSocketAddress address, String solverName, int threads, long timeoutMillis,
+			int maxStates, long maxMemory) throws IOException {
+		Solver.named(solverName); // check the name
+		if (maxStates <= 0 || maxMemory <= 0)
+			throw new Error("the server needs limits of configurations and memory");
+		this.solvers = ThreadLocal.withInitial(() -> Solver.named(solverName));
+		this.timeoutMillis = timeoutMillis;
+		this.maxStates = maxStates;
+		this.maxMemory = maxMemory;
+		this.solvePool = Executors.newFixedThreadPool(threads);
+		var executor = newVirtualThreadExecutor();
+		this.virtualThreads = (executor != null);
+		this.requestExecutor = (executor != null? executor : Executors.newCachedThreadPool());
+		server = HttpServer.create(address, 0);
+		server.setExecutor(requestExecutor);
+		server.createContext("/solve", this::handleSolve);
+		server.createContext("/metrics", this::handleMetrics);
+	}
+
+
+	public static void main(String[] args) throws IOException {
+		int port = (args.length > 0? Integer.parseInt(args[0]) : 8080);
+		String solver = (args.length > 1? args[1] : "astar");
+		int threads = (args.length > 2? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors());
+		long timeoutMillis = (args.length > 3? Long.parseLong(args[3]) : 10_000);
+		int maxStates = (args.length > 4? Integer.parseInt(args[4]) : DEFAULT_MAX_STATES);
+		long maxMemory = (args.length > 5? Long.parseLong(args[5]) << 20 : defaultMaxMemory(threads));
+		var server = new SolverServer(new InetSocketAddress(port), solver, threads, timeoutMillis, maxStates, maxMemory);
+		server.start();
+		System.out.printf("solving on http://localhost:%d/solve with %s on %d threads (%s), metrics on /metrics%n",
+				server.port(), solver, threads, (server.virtualThreads? "virtual threads" : "no virtual threads"));
+		System.out.printf("each search is limited to %d ms, %d configurations and %d MB%n", timeoutMillis, maxStates, maxMemory >> 20);
+	}
+
+
+	// half of the maximal heap shared by the searches running at the same time
+	static long defaultMaxMemory(int threads) {
+		return Math.max(1, Runtime.getRuntime().maxMemory() / 2 / threads);
+	}
+
+
+	public void start() {
+		server.start();
+	}
+
+	// stops accepting requests, waits at most delaySeconds for the current ones
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		requestExecutor.shutdown();
+		solvePool.shutdownNow();
+	}
+
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+
+
+	private void handleSolve(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		requests.increment();
+		int code = 200;
+		String response;
+		try {
+			String body;
+			if (exchange.getRequestMethod().equals("GET"))
+				body = queryParameter(exchange, "board");
+			else if (exchange.getRequestMethod().equals("POST")) {
+				var bytes = exchange.getRequestBody().readNBytes(MAX_BODY + 1);
+				if (bytes.length > MAX_BODY)
+					throw new Error("request larger than " + MAX_BODY + " bytes");
+				body = new String(bytes, StandardCharsets.UTF_8);
+			} else {
+				code = 405;
+				throw new Error("GET or POST expected");
+			}
+			var puzzle = parsePuzzle(body);
+			var shared = new boolean[1];
+			var result = solve(puzzle, start, shared);
+			response = toJson(puzzle, result, System.nanoTime() - start, shared[0]);
+		} catch (Error e) {
+			errors.increment();
+			code = (code == 200? 400 : code);
+			response = "{\"error\": " + Json.quote(String.valueOf(e.getMessage())) + "}";
+		} catch (RuntimeException e) {
+			errors.increment();
+			code = 500;
+			response = "{\"error\": " + Json.quote(String.valueOf(e)) + "}";
+		}
+		send(exchange, code, response);
+		recordLatency(System.nanoTime() - start);
+	}
+
+
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		double uptime = (System.nanoTime() - startTime) / 1e9;
+		long count = requests.sum();
+		var response = String.format(Locale.ROOT,
+				"{\"uptimeSeconds\": %.3f, \"requests\": %d, \"solves\": %d, \"coalesced\": %d, \"errors\": %d, "
+				+ "\"inFlight\": %d, \"throughput\": %.3f, \"virtualThreads\": %b, "
+				+ "\"latencyMs\": {\"p50\": %.3f, \"p90\": %.3f, \"p99\": %.3f, \"max\": %.3f}}",
+				uptime, count, solves.sum(), coalesced.sum(), errors.sum(), inFlight.size(),
+				count / uptime, virtualThreads, latencyPercentile(0.5), latencyPercentile(0.9),
+				latencyPercentile(0.99), maxLatency.get() / 1e6);
+		send(exchange, 200, response);
+	}
+
+
+
+	// solves the puzzle, or waits for the search of the same puzzle started by another request
+	private SolveResult solve(RushHour puzzle, long arrival, boolean[] shared) {
+		var key = key(puzzle);
+		var future = new CompletableFuture<SolveResult>();
+		var running = inFlight.putIfAbsent(key, future);
+		if (running != null) {
+			coalesced.increment();
+			shared[0] = true;
+			return running.join();
+		}
+		solves.increment();
+		// the deadline counts the time spent waiting for a solver thread
+		var limits = new SolveLimits(Math.max(1, timeoutMillis - (System.nanoTime() - arrival) / 1_000_000), maxStates, maxMemory);
+		solvePool.execute(() -> {
+			try {
+				future.complete(solvers.get().solve(puzzle, limits));
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			} finally {
+				inFlight.remove(key, future);
+			}
+		});
+		return future.join();
+	}
+
+
+	// identifies the puzzles with the same walls, exit and cars, with the same ids, in the same configuration
+	static String key(RushHour puzzle) {
+		var key = new StringBuilder();
+		key.append(puzzle.parking.width).append('x').append(puzzle.parking.height).append(" exit ").append(puzzle.getExit());
+		for (int y = 0; y < puzzle.parking.height; y++)
+			if (puzzle.parking.wallRow(y) != 0)
+				key.append(" w").append(y).append(':').append(Long.toHexString(puzzle.parking.wallRow(y)));
+		for (var car: puzzle.cars)
+			if (car != null)
+				key.append(' ').append(car.id).append(car.isHorizontal? 'h' : 'v')
+						.append(car.x).append(',').append(car.y).append(',').append(car.size);
+		return key.toString();
+	}
+
+
+	/**
+	 * The puzzle of the body of a request: a one-line board, or a JSON object
+	 * with a "board", or with "width", "height", "cars", "walls" and "exit"
+	 */
+	static RushHour parsePuzzle(String body) {
+		if (body == null || body.isBlank())
+			throw new Error("no puzzle in the request");
+		body = body.trim();
+		if (!body.startsWith("{"))
+			return PuzzleFormat.parse(body);
+		var request = (Map<?, ?>) Json.parse(body);
+		if (request.get("board") instanceof String)
+			return PuzzleFormat.parse((String) request.get("board"));
+		int width = Json.intField(request, "width", 6);
+		int height = Json.intField(request, "height", 6);
+		if (width < 2 || height < 2 || width > 64 || height > 64)
+			throw new Error("invalid board size " + width + "x" + height);
+		if (!(request.get("cars") instanceof List))
+			throw new Error("\"board\" or \"cars\" expected");
+		var puzzle = new RushHour(width, height);
+		if (request.get("exit") != null) {
+			int exit = EXITS.indexOf(String.valueOf(request.get("exit")));
+			if (exit == -1)
+				throw new Error("the exit must be one of " + EXITS);
+			puzzle.setExit(exit);
+		}
+		if (request.get("walls") instanceof List)
+			for (var element: (List<?>) request.get("walls")) {
+				if (!(element instanceof List) || ((List<?>) element).size() != 2
+						|| !(((List<?>) element).get(0) instanceof Double) || !(((List<?>) element).get(1) instanceof Double))
+					throw new Error("the walls must be [x, y] pairs");
+				var cell = (List<?>) element;
+				if (!puzzle.addWall(((Double) cell.get(0)).intValue(), ((Double) cell.get(1)).intValue()))
+					throw new Error("invalid wall " + cell);
+			}
+		for (var element: (List<?>) request.get("cars")) {
+			if (!(element instanceof Map))
+				throw new Error("the cars must be objects");
+			var car = (Map<?, ?>) element;
+			boolean horizontal = Boolean.TRUE.equals(car.get("horizontal"));
+			boolean red = Boolean.TRUE.equals(car.get("red"));
+			if (!puzzle.addCar(Json.intField(car, "x", -1), Json.intField(car, "y", -1), Json.intField(car, "size", 2),
+					(horizontal? Car.HORIZONTAL : Car.VERTICAL), red))
+				throw new Error("invalid car " + car);
+		}
+		if (puzzle.cars.length < 2 || puzzle.cars[1] == null)
+			throw new Error("no red car");
+		return puzzle;
+	}
+
+
+	private static String toJson(RushHour puzzle, SolveResult result, long nanos, boolean shared) {
+		var json = new StringBuilder();
+		json.append("{\"status\": \"").append(result.status).append('"');
+		if (result.status == SolveResult.Status.SOLVED) {
+			json.append(", \"numMoves\": ").append(result.winningMoves.size()).append(", \"moves\": [");
+			boolean first = true;
+			for (var carMove: result.winningMoves) {
+				json.append(first? "" : ", ").append("{\"car\": ").append(carMove.carId)
+						.append(", \"dxy\": ").append(carMove.dxy).append('}');
+				first = false;
+			}
+			json.append(']');
+			if (puzzle.getNumCars() <= 26)
+				json.append(", \"notation\": ").append(Json.quote(PuzzleFormat.formatMoves(result.winningMoves)));
+		}
+		json.append(String.format(Locale.ROOT, ", \"timeMs\": %.3f, \"coalesced\": %b}", nanos / 1e6, shared));
+		return json.toString();
+	}
+
+
+	private static String queryParameter(HttpExchange exchange, String name) {
+		var query = exchange.getRequestURI().getRawQuery();
+		if (query != null)
+			for (var parameter: query.split("&"))
+				if (parameter.startsWith(name + "="))
+					return URLDecoder.decode(parameter.substring(name.length() + 1), StandardCharsets.UTF_8);
+		return null;
+	}
+
+
+	private static void send(HttpExchange exchange, int code, String response) throws IOException {
+		var bytes = response.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(code, bytes.length);
+		try (var output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+
+
+
+	private void recordLatency(long nanos) {
+		long micros = Math.max(1, nanos / 1000);
+		int bucket = Math.min(LATENCY_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+		latencies.incrementAndGet(bucket);
+		maxLatency.accumulateAndGet(nanos, Math::max);
+	}
+
+	// upper bound of the bucket containing the percentile (at most the maximum), in milliseconds
+	private double latencyPercentile(double percentile) {
+		long total = 0;
+		for (int b = 0; b < LATENCY_BUCKETS; b++)
+			total += latencies.get(b);
+		long rank = (long) Math.ceil(percentile * total);
+		long count = 0;
+		for (int b = 0; b < LATENCY_BUCKETS; b++) {
+			count += latencies.get(b);
+			if (count >= rank && count > 0)
+				return Math.min((1L << (b + 1)) * 1000, maxLatency.get()) / 1e6;
+		}
+		return 0;
+	}
+
+
+	// Executors.newVirtualThreadPerTaskExecutor() if the JVM has it, null otherwise
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
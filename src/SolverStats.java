@@ -0,0 +1,235 @@
+import java.util.Arrays;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Statistics of the last search of a solver:
+ * ------------------------------------------
+ * - totals: configurations generated by a move (including the ones already visited),
+ *   duplicates (generated but already visited), visited (size of the visited set or
+ *   store at the end), expanded, peakFrontier (largest number of configurations waiting
+ *   to be expanded at the start of a depth) and the depth of the solution,
+ * - per depth: number of configurations expanded at each depth and the time spent
+ *   expanding them (for SolverAStar, the depth is the estimation f = g + h),
+ * - a JFR event rushhour.Solve is emitted for each search and rushhour.Depth for each
+ *   depth, when a flight recording is running (java -XX:StartFlightRecording ...),
+ * - bytesRead and bytesWritten: disk I/O of the solvers keeping their search in files
+ *   (SolverExternalBFS), 0 for the others,
+ * - memory: bytes used by the visited set or store of the solvers keeping all the
+ *   configurations in memory, at the end of the search (0 if not measured).
+ * The solvers count in local variables and only update the statistics once per depth,
+ * so collecting them costs nothing per configuration, and a JFR event that is not
+ * enabled is not committed.
+ */
+public class SolverStats {
+	private String solver = "";
+	long generated;
+	long duplicates;
+	int visited;
+	int expanded;
+	int peakFrontier;
+	int solutionDepth = -1;
+	long nanos;
+	long bytesRead;
+	long bytesWritten;
+	long memory;
+	// per depth
+	private int depths = 0;
+	private int[] expandedAtDepth = new int[64];
+	private long[] nanosAtDepth = new long[64];
+
+	private long start;
+	private long depthStart;
+	private SolveEvent solveEvent;
+
+
+	// resets the statistics at the beginning of a search
+	void start(String solverName) {
+		solver = solverName;
+		generated = duplicates = 0;
+		visited = expanded = peakFrontier = 0;
+		solutionDepth = -1;
+		nanos = 0;
+		bytesRead = bytesWritten = memory = 0;
+		Arrays.fill(expandedAtDepth, 0, depths, 0);
+		Arrays.fill(nanosAtDepth, 0, depths, 0);
+		depths = 0;
+		solveEvent = new SolveEvent();
+		solveEvent.begin();
+		start = depthStart = System.nanoTime();
+	}
+
+	/**
+	 * Adds the counts of the configurations expanded at a depth since the last call,
+	 * frontier being the number of configurations waiting to be expanded at this depth
+	 * (the same depth can be ended several times, the counts are added)
+	 */
+	void endDepth(int depth, int expandedCount, long generatedCount, long duplicateCount, int frontier) {
+		long now = System.nanoTime();
+		if (depth >= expandedAtDepth.length) {
+			int length = Math.max(depth + 1, 2 * expandedAtDepth.length);
+			expandedAtDepth = Arrays.copyOf(expandedAtDepth, length);
+			nanosAtDepth = Arrays.copyOf(nanosAtDepth, length);
+		}
+		depths = Math.max(depths, depth + 1);
+		expandedAtDepth[depth] += expandedCount;
+		nanosAtDepth[depth] += now - depthStart;
+		expanded += expandedCount;
+		generated += generatedCount;
+		duplicates += duplicateCount;
+		peakFrontier = Math.max(peakFrontier, frontier);
+		var event = new DepthEvent();
+		if (event.shouldCommit()) {
+			event.solver = solver;
+			event.depth = depth;
+			event.frontier = frontier;
+			event.expanded = expandedCount;
+			event.generated = generatedCount;
+			event.duplicates = duplicateCount;
+			event.time = now - depthStart;
+			event.commit();
+		}
+		depthStart = now;
+	}
+
+	// ends the search: number of visited configurations, and number of moves of the solution (-1 if none)
+	void end(int visitedCount, int solutionMoves) {
+		nanos = System.nanoTime() - start;
+		visited = visitedCount;
+		solutionDepth = solutionMoves;
+		solveEvent.end();
+		if (solveEvent.shouldCommit()) {
+			solveEvent.solver = solver;
+			solveEvent.solutionDepth = solutionDepth;
+			solveEvent.expanded = expanded;
+			solveEvent.generated = generated;
+			solveEvent.duplicates = duplicates;
+			solveEvent.visited = visited;
+			solveEvent.peakFrontier = peakFrontier;
+			solveEvent.commit();
+		}
+		solveEvent = null;
+	}
+
+
+	public long getGenerated() {
+		return generated;
+	}
+
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	public int getVisited() {
+		return visited;
+	}
+
+	public int getExpanded() {
+		return expanded;
+	}
+
+	public int getPeakFrontier() {
+		return peakFrontier;
+	}
+
+	// number of moves of the solution, -1 if the puzzle cannot be solved
+	public int getSolutionDepth() {
+		return solutionDepth;
+	}
+
+	// duration of the search in nanoseconds
+	public long getNanos() {
+		return nanos;
+	}
+
+	// disk I/O of the search in bytes
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	public long getMemory() {
+		return memory;
+	}
+
+	// number of depths reached by the search
+	public int getDepths() {
+		return depths;
+	}
+
+	public int getExpandedAtDepth(int depth) {
+		return (depth < depths? expandedAtDepth[depth] : 0);
+	}
+
+	public long getNanosAtDepth(int depth) {
+		return (depth < depths? nanosAtDepth[depth] : 0);
+	}
+
+
+	@Override
+	public String toString() {
+		var text = new StringBuilder();
+		text.append(String.format("%s: solution %d moves, %.3f ms%n", solver, solutionDepth, nanos / 1e6));
+		text.append(String.format("generated %d, duplicates %d, visited %d, expanded %d, peak frontier %d%n",
+				generated, duplicates, visited, expanded, peakFrontier));
+		if (bytesRead > 0 || bytesWritten > 0)
+			text.append(String.format("disk read %.1f MB, written %.1f MB%n", bytesRead / 1e6, bytesWritten / 1e6));
+		if (memory > 0)
+			text.append(String.format("memory %.1f MB, %.1f bytes per configuration%n", memory / 1e6, (double) memory / Math.max(1, visited)));
+		text.append(String.format("%6s %10s %10s%n", "depth", "expanded", "time (ms)"));
+		for (int depth = 0; depth < depths; depth++)
+			if (expandedAtDepth[depth] > 0)
+				text.append(String.format("%6d %10d %10.3f%n", depth, expandedAtDepth[depth], nanosAtDepth[depth] / 1e6));
+		return text.toString();
+	}
+
+
+
+	@Name("rushhour.Solve")
+	@Label("Rush Hour Solve")
+	@Category("Rush Hour")
+	static class SolveEvent extends Event {
+		@Label("Solver")
+		String solver;
+		@Label("Solution Depth")
+		int solutionDepth;
+		@Label("Expanded")
+		int expanded;
+		@Label("Generated")
+		long generated;
+		@Label("Duplicates")
+		long duplicates;
+		@Label("Visited")
+		int visited;
+		@Label("Peak Frontier")
+		int peakFrontier;
+	}
+
+	@Name("rushhour.Depth")
+	@Label("Rush Hour Search Depth")
+	@Category("Rush Hour")
+	static class DepthEvent extends Event {
+		@Label("Solver")
+		String solver;
+		@Label("Depth")
+		int depth;
+		@Label("Frontier")
+		int frontier;
+		@Label("Expanded")
+		int expanded;
+		@Label("Generated")
+		long generated;
+		@Label("Duplicates")
+		long duplicates;
+		@Label("Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long time;
+	}
+}
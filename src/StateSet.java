@@ -0,0 +1,101 @@
+
+/**
+ * Set of configurations, identified by their RushHour.longRepresentation():
+ * -------------------------------------------------------------------------
+ * - if all the keys are smaller than DENSE_LIMIT, the set is a dense bitmap
+ *   indexed directly by the key (one bit per possible configuration),
+ * - otherwise it is an open-addressing hash table of longs with linear probing.
+ * In both cases no object is allocated per added key, the tables only grow.
+ */
+public class StateSet {
+	// maximum number of possible keys for using the bitmap (8 MB)
+	static final long DENSE_LIMIT = 1L << 26;
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	private long[] bitmap; // dense mode
+	private long[] table;  // hashed mode: stores key + 1, so that 0 marks an empty slot
+	private int mask;      // table.length - 1
+	private int size = 0;
+
+
+	// stateSpaceSize: the keys added to the set are in [0, stateSpaceSize)
+	public StateSet(long stateSpaceSize) {
+		if (stateSpaceSize <= DENSE_LIMIT)
+			bitmap = new long[(int) ((stateSpaceSize + 63) >>> 6)];
+		else {
+			table = new long[INITIAL_CAPACITY];
+			mask = INITIAL_CAPACITY - 1;
+		}
+	}
+
+
+	// adds the key to the set, returns true if it was not already there
+	public boolean add(long key) {
+		if (bitmap != null) {
+			int word = (int) (key >>> 6);
+			long bit = 1L << key;
+			if ((bitmap[word] & bit) != 0)
+				return false;
+			bitmap[word] |= bit;
+			size++;
+			return true;
+		}
+		long stored = key + 1;
+		int slot = hash(key) & mask;
+		while (table[slot] != 0) {
+			if (table[slot] == stored)
+				return false;
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = stored;
+		if (++size > (mask >> 1)) // keep the load factor under 1/2
+			grow();
+		return true;
+	}
+
+
+	public boolean contains(long key) {
+		if (bitmap != null)
+			return (bitmap[(int) (key >>> 6)] & (1L << key)) != 0;
+		long stored = key + 1;
+		int slot = hash(key) & mask;
+		while (table[slot] != 0) {
+			if (table[slot] == stored)
+				return true;
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+
+	public int size() {
+		return size;
+	}
+
+	// bytes used by the bitmap or the hash table
+	public long memoryUsage() {
+		return 8L * (bitmap != null? bitmap.length : table.length);
+	}
+
+
+	// doubles the capacity of the hash table and re-inserts the keys
+	private void grow() {
+		var oldTable = table;
+		table = new long[oldTable.length * 2];
+		mask = table.length - 1;
+		for (var stored: oldTable) {
+			if (stored == 0)
+				continue;
+			int slot = hash(stored - 1) & mask;
+			while (table[slot] != 0)
+				slot = (slot + 1) & mask;
+			table[slot] = stored;
+		}
+	}
+
+	// spreads the bits of the key (keys of neighbouring configurations are close)
+	static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
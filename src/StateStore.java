@@ -0,0 +1,202 @@
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Stores each discovered configuration once, with a link to its parent:
+ * ----------------------------------------------------------------------
+ * - the configurations are numbered 0,1,2... in their order of insertion,
+ * - for each of them we keep its key (see RushHour.longRepresentation()), the index
+ *   of its parent configuration (-1 for the initial one) and the packed move
+ *   (see CarMove.pack) leading from the parent to it,
+ * - an open-addressing hash table gives the index of a key,
+ * - on large boards, the keys are arrays of keyWords longs (see PuzzleGeometry.keyWords),
+ *   stored one after the other, and they are given with the methods taking a long[] key.
+ * All the data is kept in primitive arrays, so no object is allocated per configuration.
+ */
+public class StateStore {
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	private final int keyWords;
+	private long[] keys;  // keyWords longs per configuration
+	private int[] parents = new int[INITIAL_CAPACITY];
+	private int[] moves = new int[INITIAL_CAPACITY];
+	private int size = 0;
+
+	// hash table: stores index + 1, so that 0 marks an empty slot
+	private int[] table = new int[2 * INITIAL_CAPACITY];
+	private int mask = table.length - 1;
+
+
+	// for keys of a single long
+	public StateStore() {
+		this(1);
+	}
+
+	public StateStore(int keyWords) {
+		this.keyWords = keyWords;
+		keys = new long[keyWords * INITIAL_CAPACITY];
+	}
+
+
+	/**
+	 * Adds a configuration if its key is not in the store yet (keyWords must be 1)
+	 * @return its index, or -1 if the key was already in the store
+	 */
+	public int add(long key, int parent, int move) {
+		int slot = StateSet.hash(key) & mask;
+		while (table[slot] != 0) {
+			if (keys[table[slot] - 1] == key)
+				return -1;
+			slot = (slot + 1) & mask;
+		}
+		ensureCapacity();
+		int index = size++;
+		keys[index] = key;
+		return added(index, slot, parent, move);
+	}
+
+	// same as add(long, int, int) for a key of keyWords longs
+	public int add(long[] key, int parent, int move) {
+		if (keyWords == 1)
+			return add(key[0], parent, move);
+		int slot = hash(key, 0) & mask;
+		while (table[slot] != 0) {
+			if (equals(table[slot] - 1, key))
+				return -1;
+			slot = (slot + 1) & mask;
+		}
+		ensureCapacity();
+		int index = size++;
+		System.arraycopy(key, 0, keys, index * keyWords, keyWords);
+		return added(index, slot, parent, move);
+	}
+
+	private void ensureCapacity() {
+		if (size == parents.length) {
+			keys = Arrays.copyOf(keys, 2 * size * keyWords);
+			parents = Arrays.copyOf(parents, 2 * size);
+			moves = Arrays.copyOf(moves, 2 * size);
+		}
+	}
+
+	// records the parent of the configuration added at index, and its index in the slot of the table
+	private int added(int index, int slot, int parent, int move) {
+		parents[index] = parent;
+		moves[index] = move;
+		table[slot] = index + 1;
+		if (size > (table.length >> 1)) // keep the load factor under 1/2
+			grow();
+		return index;
+	}
+
+
+	// the index of the key, or -1 if it is not in the store
+	public int indexOf(long key) {
+		int slot = StateSet.hash(key) & mask;
+		while (table[slot] != 0) {
+			if (keys[table[slot] - 1] == key)
+				return table[slot] - 1;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	public int indexOf(long[] key) {
+		if (keyWords == 1)
+			return indexOf(key[0]);
+		int slot = hash(key, 0) & mask;
+		while (table[slot] != 0) {
+			if (equals(table[slot] - 1, key))
+				return table[slot] - 1;
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+
+	// changes the parent (and the move coming from it) of a configuration
+	public void setParent(int index, int parent, int move) {
+		parents[index] = parent;
+		moves[index] = move;
+	}
+
+
+	public long key(int index) {
+		return keys[index];
+	}
+
+	// copies the key of the configuration at index in "key"
+	public void key(int index, long[] key) {
+		System.arraycopy(keys, index * keyWords, key, 0, keyWords);
+	}
+
+	public int parent(int index) {
+		return parents[index];
+	}
+
+	public int move(int index) {
+		return moves[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// bytes used by the arrays of the store
+	public long memoryUsage() {
+		return 8L * keys.length + 8L * parents.length + 4L * table.length;
+	}
+
+
+	// number of moves from the initial configuration to the one at "index", following the parents
+	public int depth(int index) {
+		int depth = 0;
+		for (int i = index; parents[i] != -1; i = parents[i])
+			depth++;
+		return depth;
+	}
+
+
+	// the moves leading to the winning configuration at "index", followed by the
+	// final move pushing the red car to the exit
+	public LinkedList<CarMove> winningMoves(PuzzleGeometry geometry, int index) {
+		var winningMoves = new LinkedList<CarMove>();
+		var positions = new int[geometry.numCars + 1];
+		geometry.decode(keys, index * keyWords, positions);
+		winningMoves.add(new CarMove(1, geometry.distToExit(positions)));
+		for (int i = index; parents[i] != -1; i = parents[i])
+			winningMoves.addFirst(CarMove.unpack(moves[i]));
+		return winningMoves;
+	}
+
+
+	// doubles the capacity of the hash table and re-inserts the indices
+	private void grow() {
+		table = new int[2 * table.length];
+		mask = table.length - 1;
+		for (int index = 0; index < size; index++) {
+			int slot = hash(keys, index * keyWords) & mask;
+			while (table[slot] != 0)
+				slot = (slot + 1) & mask;
+			table[slot] = index + 1;
+		}
+	}
+
+
+	// hash of the key stored in keys[offset],...,keys[offset + keyWords - 1],
+	// StateSet.hash() of the key for a single long
+	private int hash(long[] keys, int offset) {
+		int hash = StateSet.hash(keys[offset]);
+		for (int w = 1; w < keyWords; w++)
+			hash = 31 * hash + StateSet.hash(keys[offset + w]);
+		return hash;
+	}
+
+	private boolean equals(int index, long[] key) {
+		int offset = index * keyWords;
+		for (int w = 0; w < keyWords; w++)
+			if (keys[offset + w] != key[w])
+				return false;
+		return true;
+	}
+}
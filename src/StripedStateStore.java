@@ -0,0 +1,85 @@
+import java.util.LinkedList;
+
+/**
+ * Thread safe version of StateStore, used by the parallel solvers:
+ * ----------------------------------------------------------------
+ * - the configurations are spread over STRIPES independent StateStores according
+ *   to the hash of their key, each of them is locked only while it is accessed,
+ *   so threads adding different keys rarely wait for each other,
+ * - a configuration is identified by (its index in its stripe) * STRIPES + stripe,
+ *   which is the value used for the parent links.
+ */
+public class StripedStateStore {
+	private static final int STRIPE_BITS = 6;
+	static final int STRIPES = 1 << STRIPE_BITS;
+
+	private final StateStore[] stripes = new StateStore[STRIPES];
+
+
+	public StripedStateStore() {
+		for (int stripe = 0; stripe < STRIPES; stripe++)
+			stripes[stripe] = new StateStore();
+	}
+
+
+	/**
+	 * Adds a configuration if its key is not in the store yet
+	 * @return its id, or -1 if the key was already in the store
+	 */
+	public int add(long key, int parent, int move) {
+		// the low bits of the hash are used inside the stripe
+		int stripe = StateSet.hash(key) >>> (32 - STRIPE_BITS);
+		var store = stripes[stripe];
+		int index;
+		synchronized (store) {
+			index = store.add(key, parent, move);
+		}
+		if (index == -1)
+			return -1;
+		if (index >= (Integer.MAX_VALUE >> STRIPE_BITS))
+			throw new Error("too many configurations for a StripedStateStore");
+		return (index << STRIPE_BITS) | stripe;
+	}
+
+
+	// the following methods must not be called while other threads are adding keys
+
+	public long key(int id) {
+		return stripes[id & (STRIPES - 1)].key(id >>> STRIPE_BITS);
+	}
+
+	public int parent(int id) {
+		return stripes[id & (STRIPES - 1)].parent(id >>> STRIPE_BITS);
+	}
+
+	public int move(int id) {
+		return stripes[id & (STRIPES - 1)].move(id >>> STRIPE_BITS);
+	}
+
+	public int size() {
+		int size = 0;
+		for (var store: stripes)
+			size += store.size();
+		return size;
+	}
+
+	// approximate if other threads are adding keys
+	public long memoryUsage() {
+		long bytes = 0;
+		for (var store: stripes)
+			bytes += store.memoryUsage();
+		return bytes;
+	}
+
+
+	// same as StateStore.winningMoves()
+	public LinkedList<CarMove> winningMoves(PuzzleGeometry geometry, int id) {
+		var winningMoves = new LinkedList<CarMove>();
+		var positions = new int[geometry.numCars + 1];
+		geometry.decode(key(id), positions);
+		winningMoves.add(new CarMove(1, geometry.distToExit(positions)));
+		for (int i = id; parent(i) != -1; i = parent(i))
+			winningMoves.addFirst(CarMove.unpack(move(i)));
+		return winningMoves;
+	}
+}
@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * MoveKernel computing the slide ranges of LANES configurations at once with the Vector API
+ * (incubating in Java 17: compiled and run with --add-modules jdk.incubator.vector):
+ * -----------------------------------------------------------------------------------------
+ * - each lane of the vectors holds one configuration: the keys are decoded into a vector
+ *   of positions per car, then the bitboard of each lane of the parking holding a car is
+ *   built from its walls, the segments of its cars and the cells of the cars crossing it,
+ * - the free cells before and after each car are counted from the bit of the first
+ *   occupied cell, the index of a bit being the exponent of a double (the Vector API of
+ *   Java 17 has no bit counting operation), so the lanes have at most 51 cells,
+ * - the keys are divided in double precision and rounded, then corrected by one step,
+ *   which is exact when the keys are below 2^50, otherwise they are decoded one by one,
+ * - the conversions between longs and doubles (and the conversion of the ranges to ints)
+ *   are not compiled to vector instructions by Java 17, so they are done by adding 2^52
+ *   and reading the bits of the doubles, and the ranges go through a buffer of longs,
+ * - the last count % LANES configurations of a block go through buffers of LANES
+ *   configurations rather than masked loads and stores: with masked loads and stores,
+ *   the loop over the configurations gave wrong ranges once compiled on stack
+ *   replacement by the JIT of Java 17.0.9.
+ * Only created by MoveKernel.of(), for geometries with keys of a single long.
+ */
+class VectorMoveKernel extends MoveKernel {
+	private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	private static final int LANES = LONGS.length();
+	// a long n below 2^52 is the double 2^52 + n with the bits of 2^52 removed
+	private static final double TWO_52 = 0x1p52;
+	private static final long TWO_52_BITS = Double.doubleToRawLongBits(TWO_52);
+
+	private final boolean exactDecode;
+	private final double[] inverse; // 1 / multiplier, indexed by car id
+	// the lanes of the parking holding cars (rows of horizontal cars, columns of vertical cars)
+	private final int[] carLine;    // index of the lane of each car
+	private final int[] lineIndex;  // y of a row, x of a column
+	private final long[] lineWalls;
+	private final int[][] lineCars;     // cars along the lane
+	private final int[][] crossingCars; // cars of the other orientation
+	// lanePositions[carId * LANES + k] and lines[line * LANES + k]: position of the car
+	// and bitboard of the lane in the configuration of the vector lane k
+	private final long[] lanePositions;
+	private final long[] lines;
+	private final long[] beforeCells = new long[LANES];
+	private final long[] afterCells = new long[LANES];
+	private final long[] tailKeys = new long[LANES];
+	private final int[] tailBefore;
+	private final int[] tailAfter;
+
+
+	VectorMoveKernel(PuzzleGeometry geometry) {
+		super(geometry);
+		if (geometry.keyWords != 1 || geometry.width > 51 || geometry.height > 51 || LANES < 2 || DOUBLES.length() != LANES)
+			throw new Error("no vector kernel for this geometry");
+		int numCars = geometry.numCars;
+		exactDecode = (geometry.stateSpaceSize <= 1L << 50);
+		inverse = new double[numCars + 1];
+		for (int carId = 1; carId < numCars + 1; carId++)
+			inverse[carId] = 1.0 / geometry.multiplier[carId];
+
+		carLine = new int[numCars + 1];
+		var lineOf = new int[numCars + 1];
+		int numLines = 0;
+		for (int carId = 1; carId < numCars + 1; carId++) {
+			int line = 0;
+			while (line < numLines && !(geometry.isHorizontal[lineOf[line]] == geometry.isHorizontal[carId]
+					&& geometry.lane[lineOf[line]] == geometry.lane[carId]))
+				line++;
+			if (line == numLines)
+				lineOf[numLines++] = carId;
+			carLine[carId] = line;
+		}
+		lineIndex = new int[numLines];
+		lineWalls = new long[numLines];
+		lineCars = new int[numLines][];
+		crossingCars = new int[numLines][];
+		for (int line = 0; line < numLines; line++) {
+			int first = lineOf[line];
+			boolean horizontal = geometry.isHorizontal[first];
+			lineIndex[line] = geometry.lane[first];
+			lineWalls[line] = (horizontal? geometry.wallRows : geometry.wallCols)[lineIndex[line]];
+			int along = 0, crossing = 0;
+			for (int carId = 1; carId < numCars + 1; carId++) {
+				if (geometry.isHorizontal[carId] != horizontal)
+					crossing++;
+				else if (carLine[carId] == line)
+					along++;
+			}
+			lineCars[line] = new int[along];
+			crossingCars[line] = new int[crossing];
+			int a = 0, c = 0;
+			for (int carId = 1; carId < numCars + 1; carId++) {
+				if (geometry.isHorizontal[carId] != horizontal)
+					crossingCars[line][c++] = carId;
+				else if (carLine[carId] == line)
+					lineCars[line][a++] = carId;
+			}
+		}
+		lanePositions = new long[(numCars + 1) * LANES];
+		lines = new long[numLines * LANES];
+		tailBefore = new int[(numCars + 1) * LANES];
+		tailAfter = new int[(numCars + 1) * LANES];
+	}
+
+
+	@Override
+	public String name() {
+		return "vector";
+	}
+
+
+	@Override
+	public void slideRanges(long[] keys, int offset, int count, int[] before, int[] after) {
+		int i = 0;
+		for (; i + LANES <= count; i += LANES)
+			slideLanes(keys, offset + i, before, after, count, i);
+		if (i == count)
+			return;
+		// last configurations: through buffers of LANES configurations
+		Arrays.fill(tailKeys, 0);
+		System.arraycopy(keys, offset + i, tailKeys, 0, count - i);
+		slideLanes(tailKeys, 0, tailBefore, tailAfter, LANES, 0);
+		for (int carId = 1; carId < geometry.numCars + 1; carId++) {
+			System.arraycopy(tailBefore, carId * LANES, before, carId * count + i, count - i);
+			System.arraycopy(tailAfter, carId * LANES, after, carId * count + i, count - i);
+		}
+	}
+
+	// the ranges of the LANES configurations from keys[offset], written from before[carId * count + i]
+	private void slideLanes(long[] keys, int offset, int[] before, int[] after, int count, int i) {
+		decode(keys, offset);
+		fillLines();
+		// the vectors only live inside the methods, which stay small enough for
+		// the JIT to inline all the operations (and not to allocate the vectors)
+		for (int carId = 1; carId < geometry.numCars + 1; carId++) {
+			slideCar(carId);
+			for (int k = 0; k < LANES; k++) {
+				before[carId * count + i + k] = (int) beforeCells[k];
+				after[carId * count + i + k] = (int) afterCells[k];
+			}
+		}
+	}
+
+	// writes in beforeCells and afterCells the ranges of the car, from lanePositions and lines
+	private void slideCar(int carId) {
+		var occupied = LongVector.fromArray(LONGS, lines, carLine[carId] * LANES);
+		var start = LongVector.fromArray(LONGS, lanePositions, carId * LANES);
+		// after: the number of trailing free cells from the end of the car, the cells out of the lane being occupied
+		var fromEnd = occupied.or(-1L << geometry.laneLength[carId]).lanewise(VectorOperators.LSHR, start.add(geometry.size[carId]));
+		var firstOccupied = fromEnd.and(fromEnd.neg()); // 2^after
+		firstOccupied.or(TWO_52_BITS).reinterpretAsDoubles().sub(TWO_52)
+				.reinterpretAsLongs().lanewise(VectorOperators.LSHR, 52).sub(1023).intoArray(afterCells, 0);
+		// before: start - (1 + the highest occupied cell below the car), the exponent of 2 * below + 1
+		var below = occupied.and(LongVector.broadcast(LONGS, 1).lanewise(VectorOperators.LSHL, start).sub(1));
+		var exponent = below.add(below).or(1).or(TWO_52_BITS).reinterpretAsDoubles().sub(TWO_52)
+				.reinterpretAsLongs().lanewise(VectorOperators.LSHR, 52).sub(1023);
+		start.sub(exponent).intoArray(beforeCells, 0);
+	}
+
+
+	// writes in lanePositions the positions of the cars in the configurations keys[offset],...
+	private void decode(long[] keys, int offset) {
+		if (!exactDecode) {
+			for (int k = 0; k < LANES; k++) {
+				long key = keys[offset + k];
+				for (int carId = geometry.numCars; carId > 0; carId--) {
+					long position = key / geometry.multiplier[carId];
+					key -= position * geometry.multiplier[carId];
+					lanePositions[carId * LANES + k] = position;
+				}
+			}
+			return;
+		}
+		// the keys and the quotients are integers below 2^50, so all the operations are exact except the division
+		var key = LongVector.fromArray(LONGS, keys, offset).or(TWO_52_BITS).reinterpretAsDoubles().sub(TWO_52);
+		for (int carId = geometry.numCars; carId > 0; carId--) {
+			double multiplier = geometry.multiplier[carId];
+			// 2^52 + the quotient rounded to the nearest integer: the exact quotient or one more
+			var biased = key.mul(inverse[carId]).add(TWO_52);
+			var rest = key.sub(biased.sub(TWO_52).mul(multiplier));
+			var tooBig = rest.compare(VectorOperators.LT, 0);
+			biased = biased.blend(biased.sub(1), tooBig);
+			rest = rest.blend(rest.add(multiplier), tooBig);
+			biased.reinterpretAsLongs().sub(TWO_52_BITS).intoArray(lanePositions, carId * LANES);
+			key = rest;
+		}
+	}
+
+	// writes in lines the bitboards of the lanes holding cars, for the positions of lanePositions
+	private void fillLines() {
+		for (int line = 0; line < lineIndex.length; line++) {
+			var occupied = LongVector.broadcast(LONGS, lineWalls[line]);
+			for (int carId: lineCars[line]) {
+				var start = LongVector.fromArray(LONGS, lanePositions, carId * LANES);
+				occupied = occupied.or(LongVector.broadcast(LONGS, Parking.segment(0, geometry.size[carId]))
+						.lanewise(VectorOperators.LSHL, start));
+			}
+			for (int carId: crossingCars[line]) {
+				var start = LongVector.fromArray(LONGS, lanePositions, carId * LANES);
+				var crosses = start.compare(VectorOperators.LE, lineIndex[line])
+						.and(start.compare(VectorOperators.GT, lineIndex[line] - geometry.size[carId]));
+				occupied = occupied.lanewise(VectorOperators.OR, 1L << geometry.lane[carId], crosses);
+			}
+			occupied.intoArray(lines, line * LANES);
+		}
+	}
+}